@@ -0,0 +1,79 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Caps requests in flight with a limit adapted by AIMD on observed latency.
+ *
+ * Completions within the latency target raise the limit by about one per limit's worth of requests;
+ * a slower one cuts it by 10%, at most once per target interval so that a burst of slow completions
+ * does not collapse it. Work beyond the limit is refused at once instead of queueing.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double DECREASE = 0.9;
+
+    private final int min;
+    private final int max;
+    private final long targetNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limit;
+    private final AtomicLong lastDecrease;
+
+    public AdaptiveConcurrencyLimiter(int min, int max, long targetLatencyNanos) {
+        if (min < 1 || max < min) throw new IllegalArgumentException("Expected 1 <= min <= max");
+        this.min = min;
+        this.max = max;
+        this.targetNanos = targetLatencyNanos;
+        this.limit = new AtomicLong(Double.doubleToLongBits(max));
+        this.lastDecrease = new AtomicLong(System.nanoTime() - targetLatencyNanos);
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int n = inFlight.get();
+            if (n >= getLimit()) return false;
+            if (inFlight.compareAndSet(n, n + 1)) return true;
+        }
+    }
+
+    /**
+     * Ends a request admitted by {@link #tryAcquire()} that took {@code latencyNanos}.
+     */
+    public void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        if (latencyNanos <= targetNanos) {
+            update(l -> Math.min(max, l + 1 / l));
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastDecrease.get();
+        if (now - last >= targetNanos && lastDecrease.compareAndSet(last, now)) {
+            update(l -> Math.max(min, l * DECREASE));
+        }
+    }
+
+    /**
+     * Ends a request admitted by {@link #tryAcquire()} that was turned away before doing any work.
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void update(DoubleUnaryOperator f) {
+        while (true) {
+            long bits = limit.get();
+            long next = Double.doubleToLongBits(f.applyAsDouble(Double.longBitsToDouble(bits)));
+            if (bits == next || limit.compareAndSet(bits, next)) return;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.example;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Early rejection of work the service cannot take: per-owner rate limits on creates, per-client rate
+ * limits on resolves and an adaptive cap on requests in flight. Each part is off when not configured.
+ */
+public class AdmissionControl implements AdmissionControlMXBean {
+    public static final String OBJECT_NAME = "org.example:type=AdmissionControl";
+
+    private final TokenBuckets<UUID> creates;
+    private final TokenBuckets<String> resolves;
+    private final AdaptiveConcurrencyLimiter concurrency;
+    private final LongAdder createsRejected = new LongAdder();
+    private final LongAdder resolvesRejected = new LongAdder();
+    private final LongAdder overloadRejected = new LongAdder();
+
+    /**
+     * @param creates per-owner create limit, or null
+     * @param resolves per-client resolve limit, or null
+     * @param concurrency limit on requests in flight, or null
+     */
+    public AdmissionControl(TokenBuckets<UUID> creates, TokenBuckets<String> resolves, AdaptiveConcurrencyLimiter concurrency) {
+        this.creates = creates;
+        this.resolves = resolves;
+        this.concurrency = concurrency;
+    }
+
+    public static AdmissionControl unlimited() {
+        return new AdmissionControl(null, null, null);
+    }
+
+    public static AdmissionControl from(ServiceSettings settings) {
+        int maxKeys = settings.getAdmissionMaxTrackedKeys();
+        return new AdmissionControl(
+                settings.getCreateRate() > 0 ? new TokenBuckets<>(settings.getCreateRate(), settings.getCreateBurst(), maxKeys) : null,
+                settings.getResolveRate() > 0 ? new TokenBuckets<>(settings.getResolveRate(), settings.getResolveBurst(), maxKeys) : null,
+                settings.getConcurrencyMax() > 0
+                        ? new AdaptiveConcurrencyLimiter(settings.getConcurrencyMin(), settings.getConcurrencyMax(),
+                                                         settings.getLatencyTarget().toNanos())
+                        : null);
+    }
+
+    public boolean allowCreate(UUID ownerId) {
+        if (creates == null || creates.tryAcquire(ownerId)) return true;
+        createsRejected.increment();
+        return false;
+    }
+
+    /**
+     * @param clientId caller identity, null when unknown (not rate limited)
+     */
+    public boolean allowResolve(String clientId) {
+        if (resolves == null || clientId == null || resolves.tryAcquire(clientId)) return true;
+        resolvesRejected.increment();
+        return false;
+    }
+
+    /**
+     * Takes a slot for a request; when true, {@link #exit} must follow with the request's start time.
+     */
+    public boolean tryEnter() {
+        if (concurrency == null || concurrency.tryAcquire()) return true;
+        overloadRejected.increment();
+        return false;
+    }
+
+    public void exit(long startNanos) {
+        if (concurrency != null) concurrency.release(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gives back a slot taken by {@link #tryEnter} for a request that was then rate limited.
+     */
+    public void cancel() {
+        if (concurrency != null) concurrency.cancel();
+    }
+
+    /**
+     * Registers this instance with the platform MBean server, replacing an earlier registration.
+     */
+    public void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register admission MBean: " + e.getMessage(), e);
+        }
+    }
+
+    @Override public long getCreatesRejected() { return createsRejected.sum(); }
+    @Override public long getResolvesRejected() { return resolvesRejected.sum(); }
+    @Override public long getOverloadRejected() { return overloadRejected.sum(); }
+    @Override public int getConcurrencyLimit() { return concurrency == null ? 0 : concurrency.getLimit(); }
+    @Override public int getInFlight() { return concurrency == null ? 0 : concurrency.getInFlight(); }
+}
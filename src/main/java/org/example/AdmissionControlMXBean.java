@@ -0,0 +1,16 @@
+package org.example;
+
+/**
+ * JMX view of {@link AdmissionControl}, registered as {@code org.example:type=AdmissionControl}.
+ */
+public interface AdmissionControlMXBean {
+    long getCreatesRejected();
+
+    long getResolvesRejected();
+
+    long getOverloadRejected();
+
+    int getConcurrencyLimit();
+
+    int getInFlight();
+}
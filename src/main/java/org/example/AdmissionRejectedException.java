@@ -0,0 +1,15 @@
+package org.example;
+
+import java.io.Serial;
+
+/**
+ * Thrown when a request is refused by admission control; the caller may retry later.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public AdmissionRejectedException(String message) {
+        super(message);
+    }
+}
@@ -2,7 +2,7 @@ package org.example;
 import java.security.SecureRandom;
 
 public class Base62Generator implements ShortCodeGenerator {
-    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
     private final SecureRandom rnd = new SecureRandom();
 
     @Override
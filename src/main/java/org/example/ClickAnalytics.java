@@ -0,0 +1,157 @@
+package org.example;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Click analytics of all links served by one service: per-link {@link ClickStats} and the hottest
+ * links over recent traffic.
+ *
+ * A click costs a map lookup and a {@link java.util.concurrent.atomic.LongAdder} increment. The
+ * heavy-hitter sketch is fed with whole minutes as each link's window rolls, either on its next click
+ * or by {@link #rollAll}, which {@link #start} runs every minute; counts in the sketch halve every hour.
+ * Statistics live in memory only and start from zero when the process restarts.
+ */
+public class ClickAnalytics implements ClickAnalyticsMXBean, AutoCloseable {
+    public static final String OBJECT_NAME = "org.example:type=ClickAnalytics";
+
+    private final ShortenerService.Clock clock;
+    private final Map<String, ClickStats> links = new ConcurrentHashMap<>();
+    // Created with the first finished minute that had clicks: the sketch takes half a megabyte.
+    private volatile HeavyHitters hot;
+    private volatile long decayedHour;
+    private ScheduledExecutorService roller;
+
+    public ClickAnalytics(ShortenerService.Clock clock) {
+        this.clock = clock;
+        this.decayedHour = epochMinute(clock.now()) / 60;
+    }
+
+    public void record(String shortUrl, Instant at) {
+        long minute = epochMinute(at);
+        ClickStats stats = links.get(shortUrl);
+        if (stats == null) stats = links.computeIfAbsent(shortUrl, k -> new ClickStats(minute));
+        long drained = stats.record(minute);
+        if (drained > 0) hot().add(shortUrl, drained);
+    }
+
+    public Optional<ClickStats> stats(String shortUrl) {
+        return Optional.ofNullable(links.get(shortUrl));
+    }
+
+    /**
+     * Up to {@code k} hottest links with their estimated recent clicks, hottest first.
+     */
+    public List<Map.Entry<String, Long>> top(int k) {
+        HeavyHitters h = hot;
+        return h == null ? List.of() : h.top(k);
+    }
+
+    public void forget(String shortUrl) {
+        links.remove(shortUrl);
+        HeavyHitters h = hot;
+        if (h != null) h.remove(shortUrl);
+    }
+
+    /**
+     * Rolls every link's window to the current minute, feeding finished minutes to the top list.
+     */
+    public void rollAll() {
+        long minute = epochMinute(clock.now());
+        links.forEach((shortUrl, stats) -> {
+            long drained = stats.roll(minute);
+            if (drained > 0) hot().add(shortUrl, drained);
+        });
+        if (minute / 60 > decayedHour) {
+            decayedHour = minute / 60;
+            HeavyHitters h = hot;
+            if (h != null) h.decay();
+        }
+    }
+
+    /**
+     * Starts rolling windows every minute in the background.
+     */
+    public synchronized ClickAnalytics start() {
+        if (roller == null) {
+            roller = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread t = new Thread(task, "click-analytics");
+                t.setDaemon(true);
+                return t;
+            });
+            roller.scheduleAtFixedRate(this::rollAll, 1, 1, TimeUnit.MINUTES);
+        }
+        return this;
+    }
+
+    /**
+     * Registers this instance with the platform MBean server, replacing an earlier registration.
+     */
+    public void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register analytics MBean: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String[] getTopLinks() {
+        return top(20).stream().map(e -> e.getKey() + "=" + e.getValue()).toArray(String[]::new);
+    }
+
+    @Override
+    public int getTrackedLinks() {
+        return links.size();
+    }
+
+    @Override
+    public long clicksLastHour(String shortUrl) {
+        return stats(shortUrl).map(s -> Arrays.stream(s.lastMinutes(currentMinute(), ClickStats.MINUTES)).sum()).orElse(0L);
+    }
+
+    @Override
+    public long clicksLastDay(String shortUrl) {
+        return stats(shortUrl).map(s -> Arrays.stream(s.lastHours(currentMinute(), ClickStats.HOURS)).sum()).orElse(0L);
+    }
+
+    /**
+     * The service clock's current minute since the epoch, the unit of {@link ClickStats} queries.
+     */
+    public long currentMinute() {
+        return epochMinute(clock.now());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (roller != null) roller.shutdownNow();
+    }
+
+    private HeavyHitters hot() {
+        HeavyHitters h = hot;
+        if (h == null) {
+            synchronized (this) {
+                h = hot;
+                if (h == null) hot = h = new HeavyHitters(1 << 14, 100);
+            }
+        }
+        return h;
+    }
+
+    private static long epochMinute(Instant at) {
+        return Math.floorDiv(at.getEpochSecond(), 60);
+    }
+}
@@ -0,0 +1,17 @@
+package org.example;
+
+/**
+ * JMX view of {@link ClickAnalytics}, registered as {@code org.example:type=ClickAnalytics}.
+ */
+public interface ClickAnalyticsMXBean {
+    /**
+     * Hottest links as {@code shortUrl=estimatedClicks}, hottest first.
+     */
+    String[] getTopLinks();
+
+    int getTrackedLinks();
+
+    long clicksLastHour(String shortUrl);
+
+    long clicksLastDay(String shortUrl);
+}
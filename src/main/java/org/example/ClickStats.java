@@ -0,0 +1,104 @@
+package org.example;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Click counts of one link by minute, hour and day.
+ *
+ * Clicks of the current minute go to a {@link LongAdder}, so concurrent clicks on a popular link do not
+ * contend on one counter. When the minute changes the adder is drained into fixed rings of the last
+ * 60 minutes, 24 hours and {@value #DAYS} days; slots that fall out of the window are reused. A click
+ * racing the minute boundary may be counted in the following minute.
+ *
+ * Slots are ints, and the hour and day rings are only allocated once a finished minute had clicks.
+ */
+public final class ClickStats {
+    public static final int MINUTES = 60;
+    public static final int HOURS = 24;
+    public static final int DAYS = 30;
+
+    private final LongAdder current = new LongAdder();
+    private volatile long currentMinute;
+    private final int[] minutes = new int[MINUTES];
+    private int[] hours;
+    private int[] days;
+    private long total;
+
+    ClickStats(long epochMinute) {
+        this.currentMinute = epochMinute;
+    }
+
+    /**
+     * Counts a click; returns the clicks drained from an earlier minute when this call rolled the window, else 0.
+     */
+    long record(long epochMinute) {
+        long drained = epochMinute == currentMinute ? 0 : roll(epochMinute);
+        current.increment();
+        return drained;
+    }
+
+    /**
+     * Moves the window to {@code epochMinute}; returns the clicks drained from the previous minute.
+     */
+    synchronized long roll(long epochMinute) {
+        long from = currentMinute;
+        if (epochMinute <= from) return 0;
+        long v = current.sumThenReset();
+        int clicks = (int) Math.min(v, Integer.MAX_VALUE);
+        minutes[(int) (from % MINUTES)] = clicks;
+        if (clicks > 0 && hours == null) {
+            hours = new int[HOURS];
+            days = new int[DAYS];
+        }
+        if (hours != null) {
+            hours[(int) (from / 60 % HOURS)] += clicks;
+            days[(int) (from / 1440 % DAYS)] += clicks;
+        }
+        total += v;
+        for (long m = Math.max(from + 1, epochMinute - MINUTES + 1); m <= epochMinute; m++) minutes[(int) (m % MINUTES)] = 0;
+        if (hours != null) {
+            for (long h = Math.max(from / 60 + 1, epochMinute / 60 - HOURS + 1); h <= epochMinute / 60; h++) hours[(int) (h % HOURS)] = 0;
+            for (long d = Math.max(from / 1440 + 1, epochMinute / 1440 - DAYS + 1); d <= epochMinute / 1440; d++) days[(int) (d % DAYS)] = 0;
+        }
+        currentMinute = epochMinute;
+        return v;
+    }
+
+    /**
+     * Clicks in each of the last {@code n} minutes up to {@code epochMinute}, newest first.
+     */
+    public synchronized long[] lastMinutes(long epochMinute, int n) {
+        return window(minutes, MINUTES, n, epochMinute, currentMinute);
+    }
+
+    /**
+     * Clicks in each of the last {@code n} hours, the one holding {@code epochMinute} included, newest first.
+     */
+    public synchronized long[] lastHours(long epochMinute, int n) {
+        return window(hours, HOURS, n, epochMinute / 60, currentMinute / 60);
+    }
+
+    /**
+     * Clicks in each of the last {@code n} days, the one holding {@code epochMinute} included, newest first.
+     */
+    public synchronized long[] lastDays(long epochMinute, int n) {
+        return window(days, DAYS, n, epochMinute / 1440, currentMinute / 1440);
+    }
+
+    public synchronized long total() {
+        return total + current.sum();
+    }
+
+    // The slot the window was last rolled to also owns the undrained clicks; newer slots are still empty,
+    // and slots a whole ring older would alias newer data. A ring not allocated yet holds only zeros.
+    private long[] window(int[] ring, int length, int n, long newest, long rolledTo) {
+        long[] out = new long[Math.min(n, length)];
+        for (int k = 0; k < out.length; k++) {
+            long slot = newest - k;
+            if (slot > rolledTo || slot <= rolledTo - length) continue;
+            if (ring != null) out[k] = ring[(int) (slot % length)];
+            if (slot == rolledTo) out[k] += current.sum();
+        }
+        return out;
+    }
+}
@@ -0,0 +1,58 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Turns {@link #save()} into a cheap dirty mark so that many service calls share one flush.
+ * The owner decides when to persist by calling {@link #flush()}; {@link #close()} flushes too.
+ */
+public class CoalescingLinkRepository implements LinkRepository, AutoCloseable {
+    private final LinkRepository delegate;
+    private volatile boolean dirty;
+
+    public CoalescingLinkRepository(LinkRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Persists the delegate if anything asked to be saved since the last flush.
+     */
+    public void flush() {
+        if (!dirty) return;
+        dirty = false;
+        delegate.save();
+    }
+
+    @Override public boolean shortExists(String shortUrl) { return delegate.shortExists(shortUrl); }
+    @Override public Optional<LinkRecord> findByLong(String longUrl) { return delegate.findByLong(longUrl); }
+    @Override public Optional<LinkRecord> findByShort(String shortUrl) { return delegate.findByShort(shortUrl); }
+    @Override public void saveLink(LinkRecord record) { delegate.saveLink(record); }
+    @Override public boolean registerClick(LinkRecord record) { return delegate.registerClick(record); }
+    @Override public boolean clicksDecidedRemotely(LinkRecord record) { return delegate.clicksDecidedRemotely(record); }
+    @Override public void deleteByShort(String shortUrl) { delegate.deleteByShort(shortUrl); }
+    @Override public List<LinkRecord> findByOwner(UUID ownerId) { return delegate.findByOwner(ownerId); }
+    @Override public List<LinkRecord> findAllLinks() { return delegate.findAllLinks(); }
+    @Override public void ensureUser(UUID userId) { delegate.ensureUser(userId); }
+    @Override public void pushNotification(UUID userId, String message) { delegate.pushNotification(userId, message); }
+    @Override public List<String> popNotifications(UUID userId) { return delegate.popNotifications(userId); }
+    @Override public List<UUID> findAllUsers() { return delegate.findAllUsers(); }
+
+    @Override
+    public void save() {
+        dirty = true;
+    }
+
+    @Override
+    public void load() {
+        delegate.load();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        LinkRepositories.close(delegate);
+    }
+}
@@ -0,0 +1,248 @@
+package org.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * Hands out disjoint ranges of the short code space to writer nodes sharing a lease file.
+ *
+ * The file holds, per code length, the index of the next never-leased block, ranges reclaimed from
+ * expired leases, and the leases currently held. Every change happens under an exclusive file lock.
+ * A lease records how far into its range the holder may mint (its reservation); the holder moves the
+ * reservation forward when it renews and stops minting from a range once its lease may have run out.
+ * When a lease expires, the part of its range past the reservation is reclaimed and leased again;
+ * reserved codes are never reissued. The file also holds the secret that keys the mapping of positions
+ * to codes, so it must be readable by the writer nodes only.
+ */
+public class CodeRangeLeases {
+    // FileChannel locks are per process, threads of one JVM must also be serialized.
+    private static final Object JVM_LOCK = new Object();
+    private static final String SECRET_KEY = "secret";
+
+    public static final class Range {
+        private final int codeLength;
+        private final long start;
+        private final long end;
+        // Lease state as last written by this node.
+        private volatile long reserved;
+        private volatile Instant expiresAt;
+
+        Range(int codeLength, long start, long end, long reserved, Instant expiresAt) {
+            this.codeLength = codeLength;
+            this.start = start;
+            this.end = end;
+            this.reserved = reserved;
+            this.expiresAt = expiresAt;
+        }
+
+        public int getCodeLength() { return codeLength; }
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+        public long getReserved() { return reserved; }
+        public long size() { return end - start; }
+    }
+
+    // Value of a lease entry: node@end@reserved@expiresAtMillis.
+    private record Lease(String nodeId, long end, long reserved, long expiresAt) {
+        static Lease parse(String value) {
+            int c = value.lastIndexOf('@');
+            int b = value.lastIndexOf('@', c - 1);
+            int a = value.lastIndexOf('@', b - 1);
+            return new Lease(value.substring(0, a), Long.parseLong(value.substring(a + 1, b)),
+                    Long.parseLong(value.substring(b + 1, c)), Long.parseLong(value.substring(c + 1)));
+        }
+
+        String format() {
+            return nodeId + "@" + end + "@" + reserved + "@" + expiresAt;
+        }
+    }
+
+    private final Path file;
+    private final long blockSize;
+    private final Duration leaseTtl;
+    private final ShortenerService.Clock clock;
+
+    public CodeRangeLeases(Path file, long blockSize, Duration leaseTtl) {
+        this(file, blockSize, leaseTtl, new ShortenerService.SystemClock());
+    }
+
+    public CodeRangeLeases(Path file, long blockSize, Duration leaseTtl, ShortenerService.Clock clock) {
+        if (blockSize <= 0) throw new IllegalArgumentException("blockSize must be > 0");
+        this.file = file;
+        this.blockSize = blockSize;
+        this.leaseTtl = leaseTtl;
+        this.clock = clock;
+    }
+
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Number of distinct codes of the given length.
+     */
+    public static long codeSpace(int codeLength) {
+        if (codeLength <= 0 || codeLength > 10)
+            throw new IllegalArgumentException("codeLength must be in 1..10");
+        long space = 1;
+        for (int i = 0; i < codeLength; i++) space *= 62;
+        return space;
+    }
+
+    /**
+     * Secret shared by the nodes using this lease file, created on first use.
+     */
+    public byte[] secret() {
+        return update(props -> {
+            String secret = props.getProperty(SECRET_KEY);
+            if (secret == null) {
+                byte[] bytes = new byte[32];
+                new SecureRandom().nextBytes(bytes);
+                secret = HexFormat.of().formatHex(bytes);
+                props.setProperty(SECRET_KEY, secret);
+            }
+            return HexFormat.of().parseHex(secret);
+        });
+    }
+
+    /**
+     * Leases a reclaimed range if there is one, else the next fresh block. Nothing of it is reserved yet.
+     */
+    public Range acquire(String nodeId, int codeLength) {
+        long space = codeSpace(codeLength);
+        return update(props -> {
+            Instant now = clock.now();
+            reclaimExpired(props, now);
+
+            String freePrefix = "free." + codeLength + ".";
+            long start;
+            long end;
+            String free = props.stringPropertyNames().stream()
+                    .filter(k -> k.startsWith(freePrefix))
+                    .min(Comparator.comparingLong(k -> Long.parseLong(k.substring(freePrefix.length()))))
+                    .orElse(null);
+            if (free != null) {
+                start = Long.parseLong(free.substring(freePrefix.length()));
+                end = Long.parseLong(props.getProperty(free));
+                props.remove(free);
+            } else {
+                String nextKey = "next." + codeLength;
+                long block = Long.parseLong(props.getProperty(nextKey, "0"));
+                start = block * blockSize;
+                if (start >= space)
+                    throw new IllegalStateException("Code space of length " + codeLength + " is exhausted");
+                end = Math.min(start + blockSize, space);
+                props.setProperty(nextKey, String.valueOf(block + 1));
+            }
+            Instant expiresAt = now.plus(leaseTtl);
+            props.setProperty(leaseKey(codeLength, start), new Lease(nodeId, end, start, expiresAt.toEpochMilli()).format());
+            return new Range(codeLength, start, end, start, expiresAt);
+        });
+    }
+
+    /**
+     * Renews the lease on {@code range} and moves its reservation to {@code upTo}.
+     *
+     * @throws IllegalStateException when the lease expired and its range was reclaimed
+     */
+    public void reserve(String nodeId, Range range, long upTo) {
+        if (upTo < range.reserved || upTo > range.end) throw new IllegalArgumentException("reservation outside range");
+        Instant expiresAt = update(props -> {
+            if (!holds(props, nodeId, range))
+                throw new IllegalStateException("Lease on codes from " + range.start + " was lost");
+            Instant expires = clock.now().plus(leaseTtl);
+            props.setProperty(leaseKey(range.codeLength, range.start), new Lease(nodeId, range.end, upTo, expires.toEpochMilli()).format());
+            return expires;
+        });
+        range.reserved = upTo;
+        range.expiresAt = expiresAt;
+    }
+
+    /**
+     * True while {@code position} is reserved and the lease has not run out, so it may be minted.
+     */
+    public boolean canMint(Range range, long position) {
+        return position < range.reserved && clock.now().isBefore(range.expiresAt);
+    }
+
+    /**
+     * Gives the range back; codes from {@code usedUpTo} on are leased again.
+     */
+    public void release(String nodeId, Range range, long usedUpTo) {
+        update(props -> {
+            if (!holds(props, nodeId, range)) return null;
+            props.remove(leaseKey(range.codeLength, range.start));
+            if (usedUpTo < range.end)
+                props.setProperty("free." + range.codeLength + "." + usedUpTo, String.valueOf(range.end));
+            return null;
+        });
+    }
+
+    // The entry must be the very lease this node last wrote, not a later lease on a reclaimed range.
+    private static boolean holds(Properties props, String nodeId, Range range) {
+        String value = props.getProperty(leaseKey(range.codeLength, range.start));
+        if (value == null) return false;
+        Lease lease = Lease.parse(value);
+        return lease.nodeId().equals(nodeId) && lease.expiresAt() == range.expiresAt.toEpochMilli();
+    }
+
+    private static void reclaimExpired(Properties props, Instant now) {
+        for (String key : props.stringPropertyNames()) {
+            if (!key.startsWith("lease.")) continue;
+            Lease lease = Lease.parse(props.getProperty(key));
+            if (now.toEpochMilli() <= lease.expiresAt()) continue;
+            props.remove(key);
+            if (lease.reserved() < lease.end()) {
+                int codeLength = Integer.parseInt(key.substring("lease.".length(), key.lastIndexOf('.')));
+                props.setProperty("free." + codeLength + "." + lease.reserved(), String.valueOf(lease.end()));
+            }
+        }
+    }
+
+    private static String leaseKey(int codeLength, long start) {
+        return "lease." + codeLength + "." + start;
+    }
+
+    private <T> T update(Function<Properties, T> change) {
+        synchronized (JVM_LOCK) {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                                                   StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = ch.lock();
+                try {
+                    ByteBuffer content = ByteBuffer.allocate((int) ch.size());
+                    while (content.hasRemaining()) {
+                        if (ch.read(content) < 0) break;
+                    }
+                    Properties props = new Properties();
+                    props.load(new ByteArrayInputStream(content.array()));
+
+                    T result = change.apply(props);
+
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    props.store(out, "short code range leases");
+                    ch.truncate(0);
+                    ch.write(ByteBuffer.wrap(out.toByteArray()), 0);
+                    ch.force(true);
+                    return result;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to update lease file: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Line tokenizer for batch input.
+ *
+ * A reader thread decodes the input into large blocks cut at line boundaries and hands them over
+ * a small queue, so reading overlaps with executing commands. A block is handed over before it is full
+ * when the input has nothing more ready and at least one line is complete, so piped commands run as
+ * they arrive. Lines are tokenized in place: the
+ * command word is matched against the block without copying and only the argument becomes a String.
+ * Blocks are recycled once the consumer has moved past them.
+ */
+class CommandReader implements AutoCloseable {
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int DEPTH = 4;
+
+    private static final class Block {
+        char[] buf;
+        int len;
+        IOException error;
+        Block(int size) { buf = new char[size]; }
+    }
+
+    private static final Block EOF = new Block(0);
+
+    private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(DEPTH);
+    private final BlockingQueue<Block> free = new ArrayBlockingQueue<>(DEPTH + 2);
+    private final Thread reader;
+
+    private Block block;
+    private int pos;
+    private long line;
+    private int cmdFrom, cmdTo, argFrom, argTo;
+
+    CommandReader(Reader in) {
+        for (int i = 0; i < DEPTH + 2; i++) free.add(new Block(BLOCK_SIZE));
+        reader = new Thread(() -> fill(in), "batch-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Moves to the next non-blank line; false at the end of input.
+     *
+     * @throws IOException when reading the input failed
+     */
+    boolean next() throws IOException {
+        if (block == EOF) return false;
+        while (true) {
+            if (block == null || pos >= block.len) {
+                if (block != null && block != EOF) free.offer(block);
+                block = take();
+                pos = 0;
+                if (block == EOF) return false;
+                continue;
+            }
+            int end = pos;
+            while (end < block.len && block.buf[end] != '\n') end++;
+            int from = pos;
+            pos = end + 1;
+            line++;
+            if (end > from && block.buf[end - 1] == '\r') end--;
+            cmdFrom = skipSpace(from, end);
+            cmdTo = skipWord(cmdFrom, end);
+            argFrom = skipSpace(cmdTo, end);
+            argTo = skipWord(argFrom, end);
+            if (cmdFrom < cmdTo) return true;
+        }
+    }
+
+    long lineNumber() {
+        return line;
+    }
+
+    /**
+     * True when the command word equals one of {@code names}, ignoring ASCII case.
+     */
+    boolean commandIs(String... names) {
+        for (String name : names) {
+            if (name.length() != cmdTo - cmdFrom) continue;
+            int i = 0;
+            while (i < name.length() && Character.toLowerCase(block.buf[cmdFrom + i]) == name.charAt(i)) i++;
+            if (i == name.length()) return true;
+        }
+        return false;
+    }
+
+    String command() {
+        return new String(block.buf, cmdFrom, cmdTo - cmdFrom);
+    }
+
+    /**
+     * First argument of the line, null when there is none.
+     */
+    String argument() {
+        return argFrom < argTo ? new String(block.buf, argFrom, argTo - argFrom) : null;
+    }
+
+    @Override
+    public void close() {
+        reader.interrupt();
+    }
+
+    private int skipSpace(int i, int end) {
+        while (i < end && Character.isWhitespace(block.buf[i])) i++;
+        return i;
+    }
+
+    private int skipWord(int i, int end) {
+        while (i < end && !Character.isWhitespace(block.buf[i])) i++;
+        return i;
+    }
+
+    private Block take() throws IOException {
+        try {
+            Block b = filled.take();
+            if (b.error != null) throw b.error;
+            return b;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading commands", e);
+        }
+    }
+
+    private void fill(Reader in) {
+        try {
+            char[] carry = new char[0];
+            int carryLen = 0;
+            while (true) {
+                Block b = free.take();
+                if (b.buf.length < carryLen * 2) b.buf = new char[carryLen * 2];
+                System.arraycopy(carry, 0, b.buf, 0, carryLen);
+                int n = carryLen;
+                int r = 0;
+                boolean lineComplete = false;
+                while (n < b.buf.length && (r = in.read(b.buf, n, b.buf.length - n)) >= 0) {
+                    for (int i = n + r - 1; i >= n && !lineComplete; i--) lineComplete = b.buf[i] == '\n';
+                    n += r;
+                    if (lineComplete && !in.ready()) break;
+                }
+                if (r < 0) {
+                    b.len = n;
+                    filled.put(b);
+                    filled.put(EOF);
+                    return;
+                }
+                int cut = n;
+                while (cut > 0 && b.buf[cut - 1] != '\n') cut--;
+                if (cut == 0) {
+                    // a line longer than the block: carry it whole into a bigger one
+                    carry = b.buf.clone();
+                    carryLen = n;
+                    b.len = 0;
+                    free.put(b);
+                    continue;
+                }
+                carryLen = n - cut;
+                if (carry.length < carryLen) carry = new char[Math.max(carryLen, BLOCK_SIZE)];
+                System.arraycopy(b.buf, cut, carry, 0, carryLen);
+                b.len = cut;
+                filled.put(b);
+            }
+        } catch (IOException e) {
+            Block failed = new Block(0);
+            failed.error = e;
+            try {
+                filled.put(failed);
+            } catch (InterruptedException ignored) {
+                // closed by the consumer
+            }
+        } catch (InterruptedException e) {
+            // closed by the consumer
+        }
+    }
+}
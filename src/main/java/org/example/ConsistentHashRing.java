@@ -0,0 +1,123 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Immutable consistent-hash ring with virtual nodes.
+ *
+ * A key belongs to the first virtual node at or after its hash, wrapping around the ring.
+ * Adding or removing a node returns a new ring, so readers never observe a half-built one.
+ */
+public final class ConsistentHashRing<N> {
+
+    /**
+     * Hash range (fromExclusive, toInclusive]; wraps around when from >= to.
+     */
+    public static final class Arc {
+        private final long fromExclusive;
+        private final long toInclusive;
+
+        public Arc(long fromExclusive, long toInclusive) {
+            this.fromExclusive = fromExclusive;
+            this.toInclusive = toInclusive;
+        }
+
+        public long getFromExclusive() { return fromExclusive; }
+        public long getToInclusive() { return toInclusive; }
+
+        public boolean contains(long hash) {
+            if (fromExclusive < toInclusive) return hash > fromExclusive && hash <= toInclusive;
+            return hash > fromExclusive || hash <= toInclusive;
+        }
+    }
+
+    private final int virtualNodes;
+    private final Map<String, N> nodes;
+    private final TreeMap<Long, String> points;
+
+    public ConsistentHashRing(int virtualNodes) {
+        this(virtualNodes, new LinkedHashMap<>(), new TreeMap<>());
+    }
+
+    private ConsistentHashRing(int virtualNodes, Map<String, N> nodes, TreeMap<Long, String> points) {
+        if (virtualNodes <= 0) throw new IllegalArgumentException("virtualNodes must be > 0");
+        this.virtualNodes = virtualNodes;
+        this.nodes = nodes;
+        this.points = points;
+    }
+
+    public ConsistentHashRing<N> withNode(String name, N node) {
+        if (nodes.containsKey(name)) throw new IllegalArgumentException("Node already in ring: " + name);
+        Map<String, N> n = new LinkedHashMap<>(nodes);
+        n.put(name, node);
+        TreeMap<Long, String> p = new TreeMap<>(points);
+        for (long point : pointsOf(name)) p.putIfAbsent(point, name);
+        return new ConsistentHashRing<>(virtualNodes, n, p);
+    }
+
+    public ConsistentHashRing<N> withoutNode(String name) {
+        if (!nodes.containsKey(name)) throw new IllegalArgumentException("Node not in ring: " + name);
+        Map<String, N> n = new LinkedHashMap<>(nodes);
+        n.remove(name);
+        TreeMap<Long, String> p = new TreeMap<>(points);
+        p.values().removeIf(name::equals);
+        return new ConsistentHashRing<>(virtualNodes, n, p);
+    }
+
+    public N owner(String key) {
+        if (points.isEmpty()) throw new IllegalStateException("Ring is empty");
+        Map.Entry<Long, String> e = points.ceilingEntry(hash(key));
+        if (e == null) e = points.firstEntry();
+        return nodes.get(e.getValue());
+    }
+
+    public Optional<N> node(String name) {
+        return Optional.ofNullable(nodes.get(name));
+    }
+
+    public Collection<N> nodes() {
+        return Collections.unmodifiableCollection(nodes.values());
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Hash ranges owned by the named node.
+     */
+    public List<Arc> arcsOf(String name) {
+        List<Arc> arcs = new ArrayList<>();
+        for (Map.Entry<Long, String> e : points.entrySet()) {
+            if (!e.getValue().equals(name)) continue;
+            Long prev = points.lowerKey(e.getKey());
+            if (prev == null) prev = points.lastKey();
+            arcs.add(new Arc(prev, e.getKey()));
+        }
+        return arcs;
+    }
+
+    private long[] pointsOf(String name) {
+        long[] out = new long[virtualNodes];
+        for (int i = 0; i < virtualNodes; i++) out[i] = hash(name + "#" + i);
+        return out;
+    }
+
+    /**
+     * 64-bit FNV-1a followed by the MurmurHash3 finalizer to spread short keys over the ring.
+     */
+    public static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,19 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.example.ExpirySweep")
+@Label("Expiry Sweep")
+@Category("Link Shortener")
+@Description("Removal of expired links by cleanupExpiredLinks")
+final class ExpirySweepEvent extends Event {
+    @Label("Scanned")
+    int scanned;
+
+    @Label("Removed")
+    int removed;
+}
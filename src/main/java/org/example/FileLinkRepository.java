@@ -31,9 +31,10 @@ public class FileLinkRepository implements LinkRepository {
 
     @Override
     public Optional<LinkRecord> findByLong(String longUrl){
+        UrlCodec.Encoded needle = UrlCodec.encode(longUrl);
         return linksByShort.entrySet()
                 .stream()
-                .filter(entry -> entry.getValue().getLongUrl().equals(longUrl))
+                .filter(entry -> entry.getValue().hasLongUrl(needle))
                 .findFirst().map(Map.Entry::getValue);
     }
 
@@ -85,7 +86,14 @@ public class FileLinkRepository implements LinkRepository {
     }
 
     @Override
-    public void save() {
+    public List<UUID> findAllUsers() {
+        return new ArrayList<>(users.keySet());
+    }
+
+    @Override
+    public synchronized void save() {
+        RepositoryPersistEvent event = new RepositoryPersistEvent("save", "file");
+        event.begin();
         Snapshot snap = new Snapshot();
         snap.linksByShort = new HashMap<>(linksByShort);
         snap.users = new HashMap<>(users);
@@ -95,12 +103,20 @@ public class FileLinkRepository implements LinkRepository {
         } catch (IOException e) {
             throw new RuntimeException("Failed to save repository: " + e.getMessage(), e);
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.records = snap.linksByShort.size();
+            event.bytes = new File(filePath).length();
+            event.commit();
+        }
     }
 
     @Override
-    public void load() {
+    public synchronized void load() {
         File f = new File(filePath);
         if (!f.exists()) return;
+        RepositoryPersistEvent event = new RepositoryPersistEvent("load", "file");
+        event.begin();
 
         try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(f)))) {
             Object o = ois.readObject();
@@ -114,5 +130,11 @@ public class FileLinkRepository implements LinkRepository {
         } catch (Exception e) {
             throw new RuntimeException("Failed to load repository: " + e.getMessage(), e);
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.records = linksByShort.size();
+            event.bytes = f.length();
+            event.commit();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Approximate top-K keys by count: a count-min sketch estimates every key's count in fixed memory and
+ * a min-heap keeps the K keys with the largest estimates.
+ *
+ * Updates take a lock, so callers should feed pre-aggregated counts rather than single events.
+ * {@link #decay()} halves all counts, letting recent traffic outweigh old.
+ */
+public class HeavyHitters {
+    private static final int DEPTH = 4;
+
+    private final long[][] sketch;
+    private final int mask;
+    private final int capacity;
+    private final Map<String, Long> candidates = new HashMap<>();
+    private final PriorityQueue<String> heap;
+
+    /**
+     * @param width sketch counters per row, rounded up to a power of two
+     * @param capacity number of keys kept in the top list
+     */
+    public HeavyHitters(int width, int capacity) {
+        int w = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.sketch = new long[DEPTH][w];
+        this.mask = w - 1;
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(capacity + 1, Comparator.comparingLong(candidates::get));
+    }
+
+    public synchronized void add(String key, long count) {
+        if (count <= 0) return;
+        long h = ConsistentHashRing.hash(key);
+        // conservative update: raise only the counters that would otherwise underestimate
+        long updated = estimate(h) + count;
+        for (int row = 0; row < DEPTH; row++) {
+            int i = slot(h, row);
+            if (sketch[row][i] < updated) sketch[row][i] = updated;
+        }
+
+        if (candidates.containsKey(key)) {
+            heap.remove(key);
+            candidates.put(key, updated);
+            heap.add(key);
+        } else if (candidates.size() < capacity) {
+            candidates.put(key, updated);
+            heap.add(key);
+        } else if (updated > candidates.get(heap.peek())) {
+            candidates.remove(heap.poll());
+            candidates.put(key, updated);
+            heap.add(key);
+        }
+    }
+
+    public synchronized long estimate(String key) {
+        return estimate(ConsistentHashRing.hash(key));
+    }
+
+    /**
+     * Drops a key from the top list, e.g. once its link is deleted.
+     */
+    public synchronized void remove(String key) {
+        if (candidates.containsKey(key)) {
+            heap.remove(key);
+            candidates.remove(key);
+        }
+    }
+
+    public synchronized void decay() {
+        for (long[] row : sketch) {
+            for (int i = 0; i < row.length; i++) row[i] >>>= 1;
+        }
+        candidates.replaceAll((k, v) -> v >>> 1);
+    }
+
+    /**
+     * Up to {@code k} keys with the largest estimated counts, largest first.
+     */
+    public synchronized List<Map.Entry<String, Long>> top(int k) {
+        return candidates.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(k)
+                .map(e -> Map.entry(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    private long estimate(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) estimate = Math.min(estimate, sketch[row][slot(hash, row)]);
+        return estimate;
+    }
+
+    // Row hashes derived from the two halves of one 64-bit hash.
+    private int slot(long hash, int row) {
+        return ((int) hash + row * ((int) (hash >>> 32) | 1)) & mask;
+    }
+}
@@ -14,9 +14,10 @@ public class InMemoryLinkRepository implements LinkRepository {
 
     @Override
     public Optional<LinkRecord> findByLong(String longUrl) {
+        UrlCodec.Encoded needle = UrlCodec.encode(longUrl);
         return linksByShort.entrySet()
                 .stream()
-                .filter(entry -> entry.getValue().getLongUrl().equals(longUrl))
+                .filter(entry -> entry.getValue().hasLongUrl(needle))
                 .findFirst().map(Map.Entry::getValue);
     }
 
@@ -67,6 +68,11 @@ public class InMemoryLinkRepository implements LinkRepository {
         return users.get(userId).popAllNotifications();
     }
 
+    @Override
+    public List<UUID> findAllUsers() {
+        return new ArrayList<>(users.keySet());
+    }
+
     @Override public void save() { /* no-op */ }
     @Override public void load() { /* no-op */ }
 }
\ No newline at end of file
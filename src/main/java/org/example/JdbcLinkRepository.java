@@ -0,0 +1,334 @@
+package org.example;
+import java.sql.*;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Link repository backed by an embedded H2 database.
+ *
+ * All statements run on a single connection inside one open transaction; {@link #save()} commits it.
+ * Link writes are buffered and sent as JDBC batches, reads by short code consult the buffer first
+ * so the repository always sees its own writes. Long URLs are stored in the compressed form kept by
+ * {@link LinkRecord}, so clicks and reads never decompress them.
+ */
+public class JdbcLinkRepository implements LinkRepository, AutoCloseable {
+    private static final int BATCH_LIMIT = 1024;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS links (" +
+                    "short_url VARCHAR(1024) PRIMARY KEY, " +
+                    "owner_id UUID NOT NULL, " +
+                    "url_host VARCHAR NOT NULL, " +
+                    "url_tail VARBINARY NOT NULL, " +
+                    "long_hash INT NOT NULL, " +
+                    "created_at TIMESTAMP(9) WITH TIME ZONE NOT NULL, " +
+                    "expires_at TIMESTAMP(9) WITH TIME ZONE NOT NULL, " +
+                    "max_clicks INT, " +
+                    "clicks INT NOT NULL, " +
+                    "blocked BOOLEAN NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS links_owner_created ON links(owner_id, created_at)",
+            "CREATE INDEX IF NOT EXISTS links_long_hash ON links(long_hash)",
+            "CREATE TABLE IF NOT EXISTS users (user_id UUID PRIMARY KEY)",
+            "CREATE TABLE IF NOT EXISTS notifications (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "user_id UUID NOT NULL, " +
+                    "message VARCHAR NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS notifications_user ON notifications(user_id, id)"
+    };
+
+    private static final String LINK_COLUMNS =
+            "short_url, owner_id, url_host, url_tail, long_hash, created_at, expires_at, max_clicks, clicks, blocked";
+
+    private static final String SQL_MERGE_LINK =
+            "MERGE INTO links (" + LINK_COLUMNS + ") KEY (short_url) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_DELETE_LINK = "DELETE FROM links WHERE short_url = ?";
+    private static final String SQL_EXISTS = "SELECT 1 FROM links WHERE short_url = ?";
+    private static final String SQL_BY_SHORT = "SELECT " + LINK_COLUMNS + " FROM links WHERE short_url = ?";
+    private static final String SQL_BY_LONG =
+            "SELECT " + LINK_COLUMNS + " FROM links WHERE long_hash = ? AND url_host = ? AND url_tail = ? LIMIT 1";
+    private static final String SQL_BY_OWNER =
+            "SELECT " + LINK_COLUMNS + " FROM links WHERE owner_id = ? ORDER BY created_at";
+    private static final String SQL_ALL = "SELECT " + LINK_COLUMNS + " FROM links";
+    private static final String SQL_MERGE_USER = "MERGE INTO users (user_id) KEY (user_id) VALUES (?)";
+    private static final String SQL_PUSH_NOTE = "INSERT INTO notifications (user_id, message) VALUES (?, ?)";
+    private static final String SQL_SELECT_NOTES =
+            "SELECT id, message FROM notifications WHERE user_id = ? ORDER BY id";
+    private static final String SQL_DELETE_NOTES = "DELETE FROM notifications WHERE user_id = ? AND id <= ?";
+    private static final String SQL_ALL_USERS = "SELECT user_id FROM users";
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final Set<UUID> knownUsers = new HashSet<>();
+
+    // Writes not yet sent to the database; a code is never in both at once.
+    private final Map<String, LinkRecord> pendingLinks = new LinkedHashMap<>();
+    private final Set<String> pendingDeletes = new LinkedHashSet<>();
+
+    public JdbcLinkRepository(String jdbcUrl) {
+        try {
+            connection = DriverManager.getConnection(jdbcUrl);
+            connection.setAutoCommit(false);
+            try (Statement st = connection.createStatement()) {
+                for (String ddl : SCHEMA) st.execute(ddl);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to open repository: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized boolean shortExists(String shortUrl) {
+        if (pendingLinks.containsKey(shortUrl)) return true;
+        if (pendingDeletes.contains(shortUrl)) return false;
+        try {
+            PreparedStatement ps = statement(SQL_EXISTS);
+            ps.setString(1, shortUrl);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized Optional<LinkRecord> findByLong(String longUrl) {
+        flushPending();
+        try {
+            UrlCodec.Encoded url = UrlCodec.encode(longUrl);
+            PreparedStatement ps = statement(SQL_BY_LONG);
+            ps.setInt(1, url.hash());
+            ps.setString(2, url.host());
+            ps.setBytes(3, url.tail());
+            return readLinks(ps).stream().findFirst();
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized Optional<LinkRecord> findByShort(String shortUrl) {
+        LinkRecord pending = pendingLinks.get(shortUrl);
+        if (pending != null) return Optional.of(pending);
+        if (pendingDeletes.contains(shortUrl)) return Optional.empty();
+        try {
+            PreparedStatement ps = statement(SQL_BY_SHORT);
+            ps.setString(1, shortUrl);
+            return readLinks(ps).stream().findFirst();
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void saveLink(LinkRecord record) {
+        pendingDeletes.remove(record.getShortUrl());
+        pendingLinks.put(record.getShortUrl(), record);
+        if (pendingLinks.size() >= BATCH_LIMIT) flushPending();
+    }
+
+    @Override
+    public synchronized void deleteByShort(String shortUrl) {
+        pendingLinks.remove(shortUrl);
+        pendingDeletes.add(shortUrl);
+        if (pendingDeletes.size() >= BATCH_LIMIT) flushPending();
+    }
+
+    @Override
+    public synchronized List<LinkRecord> findByOwner(UUID ownerId) {
+        flushPending();
+        try {
+            PreparedStatement ps = statement(SQL_BY_OWNER);
+            ps.setObject(1, ownerId);
+            return readLinks(ps);
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized List<LinkRecord> findAllLinks() {
+        flushPending();
+        try {
+            return readLinks(statement(SQL_ALL));
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void ensureUser(UUID userId) {
+        if (knownUsers.contains(userId)) return;
+        try {
+            PreparedStatement ps = statement(SQL_MERGE_USER);
+            ps.setObject(1, userId);
+            ps.executeUpdate();
+            knownUsers.add(userId);
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void pushNotification(UUID userId, String message) {
+        ensureUser(userId);
+        try {
+            PreparedStatement ps = statement(SQL_PUSH_NOTE);
+            ps.setObject(1, userId);
+            ps.setString(2, message);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized List<String> popNotifications(UUID userId) {
+        ensureUser(userId);
+        try {
+            PreparedStatement select = statement(SQL_SELECT_NOTES);
+            select.setObject(1, userId);
+            List<String> out = new ArrayList<>();
+            long lastId = Long.MIN_VALUE;
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    lastId = rs.getLong(1);
+                    out.add(rs.getString(2));
+                }
+            }
+            if (!out.isEmpty()) {
+                PreparedStatement delete = statement(SQL_DELETE_NOTES);
+                delete.setObject(1, userId);
+                delete.setLong(2, lastId);
+                delete.executeUpdate();
+            }
+            return out;
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized List<UUID> findAllUsers() {
+        try (ResultSet rs = statement(SQL_ALL_USERS).executeQuery()) {
+            List<UUID> out = new ArrayList<>();
+            while (rs.next()) out.add(rs.getObject(1, UUID.class));
+            return out;
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public synchronized void save() {
+        flushPending();
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save repository: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void load() {
+        pendingLinks.clear();
+        pendingDeletes.clear();
+        knownUsers.clear();
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load repository: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            save();
+            for (PreparedStatement ps : statements.values()) ps.close();
+            statements.clear();
+            connection.close();
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    private void flushPending() {
+        if (pendingLinks.isEmpty() && pendingDeletes.isEmpty()) return;
+        try {
+            if (!pendingDeletes.isEmpty()) {
+                PreparedStatement ps = statement(SQL_DELETE_LINK);
+                for (String shortUrl : pendingDeletes) {
+                    ps.setString(1, shortUrl);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            if (!pendingLinks.isEmpty()) {
+                PreparedStatement ps = statement(SQL_MERGE_LINK);
+                for (LinkRecord r : pendingLinks.values()) {
+                    bindLink(ps, r);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            pendingDeletes.clear();
+            pendingLinks.clear();
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    private PreparedStatement statement(String sql) throws SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null) {
+            ps = connection.prepareStatement(sql);
+            statements.put(sql, ps);
+        }
+        return ps;
+    }
+
+    private static void bindLink(PreparedStatement ps, LinkRecord r) throws SQLException {
+        ps.setString(1, r.getShortUrl());
+        ps.setObject(2, r.getOwnerId());
+        UrlCodec.Encoded url = r.getEncodedUrl();
+        ps.setString(3, url.host());
+        ps.setBytes(4, url.tail());
+        ps.setInt(5, url.hash());
+        ps.setObject(6, toTimestamp(r.getCreatedAt()));
+        ps.setObject(7, toTimestamp(r.getExpiresAt()));
+        if (r.getMaxClicks() != null) ps.setInt(8, r.getMaxClicks());
+        else ps.setNull(8, Types.INTEGER);
+        ps.setInt(9, r.getClicks());
+        ps.setBoolean(10, r.isBlockedByLimit());
+    }
+
+    private static List<LinkRecord> readLinks(PreparedStatement ps) throws SQLException {
+        List<LinkRecord> out = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                out.add(LinkRecord.encoded(
+                        rs.getObject(2, UUID.class),
+                        new UrlCodec.Encoded(rs.getString(3), rs.getBytes(4)),
+                        rs.getString(1),
+                        rs.getObject(6, OffsetDateTime.class).toInstant(),
+                        rs.getObject(7, OffsetDateTime.class).toInstant(),
+                        rs.getObject(8, Integer.class),
+                        rs.getInt(9),
+                        rs.getBoolean(10)));
+            }
+        }
+        return out;
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static RuntimeException failure(SQLException e) {
+        return new RuntimeException("Repository query failed: " + e.getMessage(), e);
+    }
+}
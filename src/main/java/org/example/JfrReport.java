@@ -0,0 +1,69 @@
+package org.example;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Turns a flight recording into per-operation latency percentiles of the shortener events.
+ * Usage: {@code JfrReport <recording.jfr>}.
+ */
+public class JfrReport {
+    private static final String EVENT_PREFIX = "org.example.";
+
+    public static final class Summary {
+        private final long[] sortedNanos;
+
+        Summary(long[] nanos) {
+            this.sortedNanos = nanos.clone();
+            Arrays.sort(this.sortedNanos);
+        }
+
+        public int count() { return sortedNanos.length; }
+        public long max() { return sortedNanos[sortedNanos.length - 1]; }
+
+        /**
+         * Nearest-rank percentile in nanoseconds, {@code p} in (0, 100].
+         */
+        public long percentile(double p) {
+            int rank = (int) Math.ceil(p / 100.0 * sortedNanos.length);
+            return sortedNanos[Math.max(0, rank - 1)];
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("usage: JfrReport <recording.jfr>");
+            System.exit(1);
+        }
+        Map<String, Summary> report = summarize(Path.of(args[0]));
+        System.out.printf("%-28s %8s %10s %10s %10s %10s %10s%n", "operation", "count", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        report.forEach((op, s) -> System.out.printf("%-28s %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", op, s.count(),
+                s.percentile(50) / 1e3, s.percentile(90) / 1e3, s.percentile(99) / 1e3, s.percentile(99.9) / 1e3, s.max() / 1e3));
+    }
+
+    public static Map<String, Summary> summarize(Path recording) throws IOException {
+        Map<String, List<Long>> durations = new TreeMap<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent e = file.readEvent();
+                String type = e.getEventType().getName();
+                if (!type.startsWith(EVENT_PREFIX)) continue;
+                durations.computeIfAbsent(operationOf(e, type.substring(EVENT_PREFIX.length())), k -> new ArrayList<>())
+                        .add(e.getDuration().toNanos());
+            }
+        }
+        Map<String, Summary> out = new LinkedHashMap<>();
+        durations.forEach((op, list) -> out.put(op, new Summary(list.stream().mapToLong(Long::longValue).toArray())));
+        return out;
+    }
+
+    private static String operationOf(RecordedEvent e, String type) {
+        if (e.hasField("operation")) return type + " " + e.getString("operation");
+        if (e.hasField("kind")) return type + " " + e.getString("kind");
+        return type;
+    }
+}
@@ -0,0 +1,19 @@
+package org.example;
+
+import java.io.Serial;
+
+/**
+ * Thrown by a replica when a request only the leader can decide gets no answer in time.
+ */
+public class LeaderUnavailableException extends IllegalStateException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public LeaderUnavailableException(String message) {
+        super(message);
+    }
+
+    public LeaderUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
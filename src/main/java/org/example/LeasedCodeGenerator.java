@@ -0,0 +1,213 @@
+package org.example;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mints codes from ranges leased through {@link CodeRangeLeases}.
+ *
+ * Each position of a leased range maps to exactly one code through a permutation of the code space, so
+ * codes from disjoint ranges never collide and no existence check is needed. The permutation is a
+ * Feistel network keyed by the lease file's secret, cycle-walked into the code space, so issued codes
+ * do not reveal others. Codes are only
+ * minted from the reserved part of a live lease; a background task renews the held leases, moves the
+ * reservations ahead of the cursors and leases the next range before the current one runs out.
+ */
+public class LeasedCodeGenerator implements ShortCodeGenerator, AutoCloseable {
+    private static final int FEISTEL_ROUNDS = 4;
+    // Reservations run this fraction of a range ahead of the cursor.
+    private static final int RESERVE_PARTS = 4;
+
+    private static class Cursor {
+        CodeRangeLeases.Range current;
+        long next;
+        CodeRangeLeases.Range prefetched;
+
+        Cursor(CodeRangeLeases.Range range) {
+            use(range);
+        }
+
+        void use(CodeRangeLeases.Range range) {
+            current = range;
+            next = range.getStart();
+        }
+
+        long remaining() {
+            return current.getEnd() - next;
+        }
+
+        long reserveTarget() {
+            return Math.min(current.getEnd(), next + Math.max(1, current.size() / RESERVE_PARTS));
+        }
+    }
+
+    private final CodeRangeLeases leases;
+    private final String nodeId;
+    private final Map<Integer, Cursor> cursors = new HashMap<>();
+    private final ScheduledExecutorService renewer;
+    // Round function of the permutation; guarded by this.
+    private final Mac roundFunction;
+    private volatile RuntimeException lastMaintenanceFailure;
+
+    public LeasedCodeGenerator(CodeRangeLeases leases, String nodeId, Duration renewInterval) {
+        this.leases = leases;
+        this.nodeId = nodeId;
+        try {
+            this.roundFunction = Mac.getInstance("HmacSHA256");
+            roundFunction.init(new SecretKeySpec(leases.secret(), "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+        this.renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "code-lease-renewer");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = renewInterval.toMillis();
+        renewer.scheduleWithFixedDelay(this::maintain, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized String nextCode(int length) {
+        Cursor c = cursors.get(length);
+        if (c == null) {
+            c = new Cursor(leases.acquire(nodeId, length));
+            cursors.put(length, c);
+        } else if (c.remaining() == 0) {
+            leases.release(nodeId, c.current, c.next);
+            c.use(c.prefetched != null ? c.prefetched : leases.acquire(nodeId, length));
+            c.prefetched = null;
+        }
+        if (!leases.canMint(c.current, c.next)) {
+            try {
+                leases.reserve(nodeId, c.current, c.reserveTarget());
+            } catch (IllegalStateException lost) {
+                // expired and reclaimed by another node: whatever was not reserved is no longer ours
+                c.use(leases.acquire(nodeId, length));
+                leases.reserve(nodeId, c.current, c.reserveTarget());
+            }
+        }
+        return encode(c.next++, length);
+    }
+
+    @Override
+    public boolean isUnique() {
+        return true;
+    }
+
+    /**
+     * The error of the last failed background renewal, if the last run failed.
+     */
+    public Optional<RuntimeException> getLastMaintenanceFailure() {
+        return Optional.ofNullable(lastMaintenanceFailure);
+    }
+
+    @Override
+    public void close() {
+        renewer.shutdownNow();
+        synchronized (this) {
+            for (Cursor c : cursors.values()) {
+                leases.release(nodeId, c.current, c.next);
+                if (c.prefetched != null) leases.release(nodeId, c.prefetched, c.prefetched.getStart());
+            }
+            cursors.clear();
+        }
+    }
+
+    /**
+     * Renews held leases, moves reservations ahead of the cursors and prefetches a range for every length
+     * past half of its current range. Reservations are written under the generator lock so they only
+     * ever move forward.
+     */
+    void maintain() {
+        try {
+            List<Integer> lowOnCodes = new ArrayList<>();
+            synchronized (this) {
+                for (Map.Entry<Integer, Cursor> e : cursors.entrySet()) {
+                    Cursor c = e.getValue();
+                    try {
+                        leases.reserve(nodeId, c.current, Math.max(c.current.getReserved(), c.reserveTarget()));
+                    } catch (IllegalStateException lost) {
+                        // nextCode notices as well and moves on to a new range
+                    }
+                    if (c.prefetched != null) {
+                        try {
+                            leases.reserve(nodeId, c.prefetched, c.prefetched.getReserved());
+                        } catch (IllegalStateException lost) {
+                            c.prefetched = null;
+                        }
+                    }
+                    if (c.prefetched == null && c.remaining() * 2 < c.current.size()) lowOnCodes.add(e.getKey());
+                }
+            }
+            for (int length : lowOnCodes) {
+                CodeRangeLeases.Range range = leases.acquire(nodeId, length);
+                synchronized (this) {
+                    Cursor c = cursors.get(length);
+                    if (c != null && c.prefetched == null) {
+                        c.prefetched = range;
+                        range = null;
+                    }
+                }
+                if (range != null) leases.release(nodeId, range, range.getStart());
+            }
+            lastMaintenanceFailure = null;
+        } catch (RuntimeException e) {
+            // Next run retries; nextCode reserves and leases synchronously meanwhile.
+            lastMaintenanceFailure = e;
+        }
+    }
+
+    private String encode(long position, int length) {
+        long space = CodeRangeLeases.codeSpace(length);
+        long value = permute(position, length, space);
+        char[] out = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            out[i] = Base62Generator.ALPHABET.charAt((int) (value % 62));
+            value /= 62;
+        }
+        return new String(out);
+    }
+
+    /**
+     * Keyed bijection of [0, space): a balanced Feistel network on the smallest even number of bits
+     * covering the space, re-applied until the value falls inside it (cycle walking).
+     */
+    private long permute(long position, int length, long space) {
+        int halfBits = (64 - Long.numberOfLeadingZeros(space - 1) + 1) / 2;
+        long mask = (1L << halfBits) - 1;
+        long value = position;
+        do {
+            long left = value >>> halfBits;
+            long right = value & mask;
+            for (int round = 0; round < FEISTEL_ROUNDS; round++) {
+                long next = left ^ (round(round, length, right) & mask);
+                left = right;
+                right = next;
+            }
+            value = left << halfBits | right;
+        } while (value >= space);
+        return value;
+    }
+
+    private long round(int round, int length, long half) {
+        byte[] input = new byte[10];
+        input[0] = (byte) round;
+        input[1] = (byte) length;
+        for (int i = 0; i < 8; i++) input[2 + i] = (byte) (half >>> (8 * i));
+        byte[] h = roundFunction.doFinal(input);
+        long out = 0;
+        for (int i = 0; i < 8; i++) out = out << 8 | (h[i] & 0xff);
+        return out;
+    }
+}
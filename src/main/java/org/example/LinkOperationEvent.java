@@ -0,0 +1,32 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.example.LinkOperation")
+@Label("Link Operation")
+@Category("Link Shortener")
+@Description("Create, resolve or delete of a short link")
+final class LinkOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Status")
+    String status = "FAILED";
+
+    @Label("Code Length")
+    int codeLength;
+
+    @Label("Generator Retries")
+    int retries;
+
+    @Label("Owner")
+    String owner;
+
+    LinkOperationEvent(String operation) {
+        this.operation = operation;
+    }
+}
@@ -1,15 +1,22 @@
 package org.example;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.UUID;
 
 public class LinkRecord implements Serializable {
     @Serial private static final long serialVersionUID = 1L;
 
     private final UUID ownerId;
-    private final String longUrl;
+    // Long URL as interned scheme+host and compressed remainder, see UrlCodec.
+    private String urlHost;
+    private byte[] urlTail;
+    // Only set when reading snapshots written before URL compression; cleared on read.
+    private String longUrl;
     private final String shortUrl;
     private final Instant createdAt;
     private final Instant expiresAt;
@@ -25,7 +32,7 @@ public class LinkRecord implements Serializable {
                       Instant expiresAt,
                       Integer maxClicks) {
         this.ownerId = ownerId;
-        this.longUrl = longUrl;
+        setLongUrl(longUrl);
         this.shortUrl = shortUrl;
         this.createdAt = createdAt;
         this.expiresAt = expiresAt;
@@ -34,8 +41,43 @@ public class LinkRecord implements Serializable {
         this.blockedByLimit = false;
     }
 
+    public LinkRecord(UUID ownerId,
+                      String longUrl,
+                      String shortUrl,
+                      Instant createdAt,
+                      Instant expiresAt,
+                      Integer maxClicks,
+                      int clicks,
+                      boolean blockedByLimit) {
+        this(ownerId, longUrl, shortUrl, createdAt, expiresAt, maxClicks);
+        this.clicks = clicks;
+        this.blockedByLimit = blockedByLimit;
+    }
+
+    private LinkRecord(UUID ownerId, UrlCodec.Encoded url, String shortUrl, Instant createdAt, Instant expiresAt,
+                       Integer maxClicks, int clicks, boolean blockedByLimit) {
+        this.ownerId = ownerId;
+        this.urlHost = UrlCodec.internHost(url.host());
+        this.urlTail = url.tail();
+        this.shortUrl = shortUrl;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.maxClicks = maxClicks;
+        this.clicks = clicks;
+        this.blockedByLimit = blockedByLimit;
+    }
+
+    /**
+     * Record whose long URL is already in compressed form, as stored or sent by {@link #getEncodedUrl()}.
+     */
+    static LinkRecord encoded(UUID ownerId, UrlCodec.Encoded url, String shortUrl, Instant createdAt, Instant expiresAt,
+                              Integer maxClicks, int clicks, boolean blockedByLimit) {
+        return new LinkRecord(ownerId, url, shortUrl, createdAt, expiresAt, maxClicks, clicks, blockedByLimit);
+    }
+
     public UUID getOwnerId() { return ownerId; }
-    public String getLongUrl() { return longUrl; }
+    public String getLongUrl() { return UrlCodec.decode(urlHost, urlTail); }
+    UrlCodec.Encoded getEncodedUrl() { return new UrlCodec.Encoded(urlHost, urlTail); }
     public String getShortUrl() { return shortUrl; }
     public Instant getCreatedAt() { return createdAt; }
     public Instant getExpiresAt() { return expiresAt; }
@@ -43,6 +85,27 @@ public class LinkRecord implements Serializable {
     public int getClicks() { return clicks; }
     public boolean isBlockedByLimit() { return blockedByLimit; }
 
+    /**
+     * Compares without decompressing the stored URL.
+     */
+    public boolean hasLongUrl(String url) {
+        return hasLongUrl(UrlCodec.encode(url));
+    }
+
+    /**
+     * Compares with a URL encoded once by the caller, e.g. for a scan over many records.
+     */
+    boolean hasLongUrl(UrlCodec.Encoded url) {
+        return urlHost.equals(url.host()) && Arrays.equals(urlTail, url.tail());
+    }
+
+    /**
+     * Code part of a short link, e.g. the key placed on the shard ring.
+     */
+    static String codeOf(String shortUrl) {
+        return shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+    }
+
     public boolean isExpired(Instant now) {
         return now.isAfter(expiresAt);
     }
@@ -53,4 +116,29 @@ public class LinkRecord implements Serializable {
             this.blockedByLimit = true;
         }
     }
+
+    /**
+     * Takes over the click state decided elsewhere, e.g. by the replication leader.
+     */
+    void setClickState(int clicks, boolean blockedByLimit) {
+        this.clicks = clicks;
+        this.blockedByLimit = blockedByLimit;
+    }
+
+    private void setLongUrl(String url) {
+        UrlCodec.Encoded encoded = UrlCodec.encode(url);
+        this.urlHost = UrlCodec.internHost(encoded.host());
+        this.urlTail = encoded.tail();
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (longUrl != null) {
+            setLongUrl(longUrl);
+            longUrl = null;
+        } else {
+            urlHost = UrlCodec.internHost(urlHost);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public final class LinkRepositories {
+    private LinkRepositories() {}
+
+    public static LinkRepository open(ServiceSettings settings) {
+        LinkRepository local = openLocal(settings);
+        return switch (settings.getReplicationRole()) {
+            case NONE -> local;
+            case LEADER -> new ReplicationLeader(local, settings.getReplicationPort(), settings.getReplicationHeartbeat());
+            case FOLLOWER -> new ReplicaLinkRepository(local, settings.getReplicationHost(),
+                                                       settings.getReplicationPort(), settings.getReplicationMaxStaleness());
+        };
+    }
+
+    /**
+     * Closes {@code repo} if it holds resources, e.g. the delegate of a wrapping repository.
+     */
+    static void close(LinkRepository repo) throws IOException {
+        if (!(repo instanceof AutoCloseable closeable)) return;
+        try {
+            closeable.close();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to close repository: " + e.getMessage(), e);
+        }
+    }
+
+    private static LinkRepository openLocal(ServiceSettings settings) {
+        return switch (settings.getRepositoryType()) {
+            case FILE -> new FileLinkRepository(Paths.get(settings.getRepositoryPath(), "repo").toString());
+            case MEMORY -> new InMemoryLinkRepository();
+            case JDBC -> new JdbcLinkRepository(settings.getJdbcUrl());
+        };
+    }
+}
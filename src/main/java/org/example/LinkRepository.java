@@ -14,10 +14,30 @@ public interface LinkRepository {
     List<LinkRecord> findByOwner(UUID ownerId);
     List<LinkRecord> findAllLinks();
 
+    /**
+     * Counts a click on {@code record} and stores it; false when its click limit is already reached.
+     * Repositories that do not own the authoritative counter ask its owner instead.
+     */
+    default boolean registerClick(LinkRecord record) {
+        if (record.isBlockedByLimit()) return false;
+        record.registerClick();
+        saveLink(record);
+        return true;
+    }
+
+    /**
+     * True when another node decides and serializes {@link #registerClick} for {@code record}; the call
+     * may then wait on the network, so callers should not hold their own locks around it.
+     */
+    default boolean clicksDecidedRemotely(LinkRecord record) {
+        return false;
+    }
+
     // Users & notifications
     void ensureUser(UUID userId);
     void pushNotification(UUID userId, String message);
     List<String> popNotifications(UUID userId);
+    List<UUID> findAllUsers();
 
     // Persistence hooks (for file repo can persist, in-memory can no-op)
     void save();
@@ -0,0 +1,21 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+public interface LinkShortener {
+    LinkRecord createShortLink(UUID userId, String longUrl, Integer maxClicks, Duration ttl, int codeLen, String prefix);
+    ResolveResult resolveAndRegisterClick(String shortUrl);
+
+    /**
+     * Resolves on behalf of {@code clientId}, which admission control may rate limit.
+     */
+    default ResolveResult resolveAndRegisterClick(String shortUrl, String clientId) {
+        return resolveAndRegisterClick(shortUrl);
+    }
+    List<LinkRecord> listLinksByUser(UUID userId);
+    boolean deleteLink(UUID userId, String shortUrl);
+    int cleanupExpiredLinks();
+    List<String> popNotifications(UUID userId);
+}
@@ -0,0 +1,363 @@
+package org.example;
+
+import org.apache.commons.cli.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToLongFunction;
+
+/**
+ * Open-loop load generator for {@link ShortenerService}.
+ *
+ * A trace of creates and resolves is generated from a seed (or replayed from a file) with Poisson
+ * arrivals at a fixed rate. Resolves pick preloaded links by a Zipf distribution over their rank, a
+ * fraction of them asks for codes that do not exist, and creates draw their TTL from a distribution.
+ * Every operation has an intended start time taken from the trace; latency is measured from that
+ * time rather than from when a worker got to it, so a stalled service is charged for the requests
+ * that queued up behind the stall instead of hiding them (coordinated omission).
+ */
+public class LoadGenerator {
+    private static final String PREFIX = "clck.load/";
+    private static final int CODE_LENGTH = 7;
+    private static final String WORKLOAD_COMMENT = "# workload ";
+
+    public enum OpType { CREATE, RESOLVE }
+
+    /**
+     * One trace entry. {@code target} is the Zipf rank of the resolved link, -1 for an unknown code.
+     */
+    public record Op(long offsetMicros, OpType type, int target, long ttlSeconds) {}
+
+    public static class Workload {
+        private int links = 100_000;
+        private int owners = 1_000;
+        private int ops = 200_000;
+        private int warmup = 20_000;
+        private double rate = 20_000;
+        private int threads = 4;
+        private double zipf = 1.0;
+        private double unknown = 0.05;
+        private double creates = 0.05;
+        private String ttl = "exp:86400";
+        private long seed = 42;
+
+        public Workload links(int links) { this.links = links; return this; }
+        public Workload owners(int owners) { this.owners = owners; return this; }
+        public Workload ops(int ops) { this.ops = ops; return this; }
+        public Workload warmup(int warmup) { this.warmup = warmup; return this; }
+        public Workload rate(double rate) { this.rate = rate; return this; }
+        public Workload threads(int threads) { this.threads = threads; return this; }
+        public Workload zipf(double zipf) { this.zipf = zipf; return this; }
+        public Workload unknown(double unknown) { this.unknown = unknown; return this; }
+        public Workload creates(double creates) { this.creates = creates; return this; }
+        public Workload ttl(String ttl) { this.ttl = ttl; return this; }
+        public Workload seed(long seed) { this.seed = seed; return this; }
+
+        public int getLinks() { return links; }
+        public int getOps() { return ops; }
+        public int getThreads() { return threads; }
+
+        /**
+         * The trace for this workload; the same settings always give the same trace.
+         */
+        public List<Op> generate() {
+            Random rnd = new Random(seed);
+            double[] cdf = zipfCdf(links, zipf);
+            ToLongFunction<Random> ttlSampler = ttlSampler(ttl);
+            List<Op> trace = new ArrayList<>(ops);
+            double offset = 0;
+            for (int i = 0; i < ops; i++) {
+                offset += -Math.log(1 - rnd.nextDouble()) / rate * 1e6;
+                if (rnd.nextDouble() < creates) {
+                    trace.add(new Op((long) offset, OpType.CREATE, 0, ttlSampler.applyAsLong(rnd)));
+                } else if (rnd.nextDouble() < unknown) {
+                    trace.add(new Op((long) offset, OpType.RESOLVE, -1, 0));
+                } else {
+                    int rank = Arrays.binarySearch(cdf, rnd.nextDouble());
+                    trace.add(new Op((long) offset, OpType.RESOLVE, Math.min(rank < 0 ? -rank - 1 : rank, links - 1), 0));
+                }
+            }
+            return trace;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "links=%d owners=%d ops=%d warmup=%d rate=%.0f/s threads=%d zipf=%.2f unknown=%.3f creates=%.3f ttl=%s seed=%d",
+                    links, owners, ops, warmup, rate, threads, zipf, unknown, creates, ttl, seed);
+        }
+    }
+
+    public static class Report {
+        private final Map<OpType, long[]> latencies;
+        private final Map<ResolveStatus, Long> statuses;
+        private final long errors;
+        private final long elapsedNanos;
+        private final int measured;
+
+        Report(Map<OpType, long[]> latencies, Map<ResolveStatus, Long> statuses, long errors, long elapsedNanos, int measured) {
+            this.latencies = latencies;
+            this.statuses = statuses;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.measured = measured;
+        }
+
+        public int count(OpType type) { return latencies.get(type).length; }
+        public long getStatusCount(ResolveStatus status) { return statuses.getOrDefault(status, 0L); }
+        public long getErrors() { return errors; }
+        public double getThroughput() { return measured / (elapsedNanos / 1e9); }
+
+        /**
+         * Nearest-rank latency percentile in nanoseconds, measured from the intended start time.
+         */
+        public long percentile(OpType type, double p) {
+            long[] sorted = latencies.get(type);
+            if (sorted.length == 0) return 0;
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        public void print(java.io.PrintStream out) {
+            out.printf(Locale.ROOT, "throughput %.0f ops/s over %.2f s, errors %d, resolve statuses %s%n",
+                    getThroughput(), elapsedNanos / 1e9, errors, statuses);
+            out.printf("%-8s %9s %10s %10s %10s %10s%n", "op", "count", "p50 us", "p99 us", "p99.9 us", "max us");
+            for (OpType type : OpType.values()) {
+                out.printf(Locale.ROOT, "%-8s %9d %10.1f %10.1f %10.1f %10.1f%n", type.name().toLowerCase(), count(type),
+                        percentile(type, 50) / 1e3, percentile(type, 99) / 1e3,
+                        percentile(type, 99.9) / 1e3, percentile(type, 100) / 1e3);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption(new Option(null, "links", true, "preloaded links (100000)"));
+        options.addOption(new Option(null, "owners", true, "distinct owners (1000)"));
+        options.addOption(new Option(null, "ops", true, "operations in the trace (200000)"));
+        options.addOption(new Option(null, "warmup", true, "leading operations left out of the report (20000)"));
+        options.addOption(new Option(null, "rate", true, "offered load, operations per second (20000)"));
+        options.addOption(new Option(null, "threads", true, "worker threads (4)"));
+        options.addOption(new Option(null, "zipf", true, "Zipf exponent over link popularity, 0 is uniform (1.0)"));
+        options.addOption(new Option(null, "unknown", true, "fraction of resolves for codes that do not exist (0.05)"));
+        options.addOption(new Option(null, "creates", true, "fraction of creates among all operations (0.05)"));
+        options.addOption(new Option(null, "ttl", true, "TTL of created links: fixed:S, uniform:MIN:MAX or exp:MEAN seconds (exp:86400)"));
+        options.addOption(new Option(null, "seed", true, "random seed (42)"));
+        options.addOption(new Option(null, "trace-out", true, "write the generated trace to a file"));
+        options.addOption(new Option(null, "trace-in", true, "replay a trace file instead of generating one"));
+
+        CommandLine cmd = null;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            new HelpFormatter().printHelp("load-generator", options);
+            System.exit(1);
+        }
+
+        Workload w = new Workload();
+        if (cmd.hasOption("links")) w.links(Integer.parseInt(cmd.getOptionValue("links")));
+        if (cmd.hasOption("owners")) w.owners(Integer.parseInt(cmd.getOptionValue("owners")));
+        if (cmd.hasOption("ops")) w.ops(Integer.parseInt(cmd.getOptionValue("ops")));
+        if (cmd.hasOption("warmup")) w.warmup(Integer.parseInt(cmd.getOptionValue("warmup")));
+        if (cmd.hasOption("rate")) w.rate(Double.parseDouble(cmd.getOptionValue("rate")));
+        if (cmd.hasOption("threads")) w.threads(Integer.parseInt(cmd.getOptionValue("threads")));
+        if (cmd.hasOption("zipf")) w.zipf(Double.parseDouble(cmd.getOptionValue("zipf")));
+        if (cmd.hasOption("unknown")) w.unknown(Double.parseDouble(cmd.getOptionValue("unknown")));
+        if (cmd.hasOption("creates")) w.creates(Double.parseDouble(cmd.getOptionValue("creates")));
+        if (cmd.hasOption("ttl")) w.ttl(cmd.getOptionValue("ttl"));
+        if (cmd.hasOption("seed")) w.seed(Long.parseLong(cmd.getOptionValue("seed")));
+
+        List<Op> trace;
+        if (!cmd.hasOption("trace-in")) {
+            trace = w.generate();
+        } else {
+            Path in = Path.of(cmd.getOptionValue("trace-in"));
+            Optional<String> recorded = readTraceWorkload(in);
+            if (recorded.isPresent() && !recorded.get().equals(w.toString())) {
+                System.out.println("Trace was recorded for workload " + recorded.get() + ", not " + w
+                        + "; replay it with the same options");
+                System.exit(1);
+            }
+            trace = readTrace(in);
+        }
+        if (cmd.hasOption("trace-out")) writeTrace(Path.of(cmd.getOptionValue("trace-out")), w, trace);
+
+        // Repository selection goes through the usual settings, e.g. -Drepository.type=jdbc
+        ServiceSettings settings = new ServiceSettings();
+        Properties props = new Properties();
+        props.setProperty("repository_path", Files.createTempDirectory("link-load").toString());
+        props.setProperty("repository.type", "memory");
+        props.putAll(System.getProperties());
+        settings.from(props);
+        settings.getRepositoryFile().mkdirs();
+
+        LinkRepository repo = LinkRepositories.open(settings);
+        System.out.println(settings.getRepositoryType().name().toLowerCase() + " " + w
+                + (cmd.hasOption("trace-in") ? " trace=" + cmd.getOptionValue("trace-in") : ""));
+        run(repo, AdmissionControl.from(settings), w, trace).print(System.out);
+        if (repo instanceof AutoCloseable closeable) closeable.close();
+    }
+
+    /**
+     * Preloads {@code w.getLinks()} links into {@code repo} and plays {@code trace} against a service over it.
+     */
+    public static Report run(LinkRepository repo, Workload w, List<Op> trace) throws InterruptedException {
+        return run(repo, AdmissionControl.unlimited(), w, trace);
+    }
+
+    /**
+     * Same as {@link #run(LinkRepository, Workload, List)} with admission control in front of the service;
+     * each owner doubles as the client resolving its share of the trace.
+     */
+    public static Report run(LinkRepository repo, AdmissionControl admission, Workload w, List<Op> trace) throws InterruptedException {
+        int maxTarget = trace.stream().mapToInt(Op::target).max().orElse(-1);
+        if (maxTarget >= w.links)
+            throw new IllegalArgumentException("Trace resolves link rank " + maxTarget + " but the workload has only "
+                    + w.links + " links");
+        UUID[] owners = new UUID[w.owners];
+        Random rnd = new Random(w.seed);
+        for (int i = 0; i < owners.length; i++) owners[i] = new UUID(rnd.nextLong(), rnd.nextLong());
+        String[] population = new String[w.links];
+        Instant now = Instant.now();
+        for (int i = 0; i < w.links; i++) {
+            population[i] = PREFIX + code(i);
+            repo.saveLink(new LinkRecord(owners[i % owners.length], "https://example.com/articles/" + i,
+                    population[i], now, now.plus(Duration.ofDays(30)), null));
+        }
+        repo.save();
+
+        ShortenerService svc = new ShortenerService(repo, new Base62Generator(), new ShortenerService.SystemClock(), admission);
+        long[] latency = new long[trace.size()];
+        long[] finished = new long[trace.size()];
+        Map<ResolveStatus, LongAdder> statuses = new EnumMap<>(ResolveStatus.class);
+        for (ResolveStatus s : ResolveStatus.values()) statuses.put(s, new LongAdder());
+        LongAdder errors = new LongAdder();
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(w.threads);
+        long start = System.nanoTime() + 10_000_000;
+
+        for (int t = 0; t < w.threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    for (int i; (i = next.getAndIncrement()) < trace.size(); ) {
+                        Op op = trace.get(i);
+                        long intended = start + op.offsetMicros() * 1_000;
+                        for (long wait; (wait = intended - System.nanoTime()) > 0; ) LockSupport.parkNanos(wait);
+                        try {
+                            if (op.type() == OpType.CREATE) {
+                                svc.createShortLink(owners[i % owners.length], "https://example.com/load/" + i,
+                                        null, Duration.ofSeconds(Math.max(1, op.ttlSeconds())), CODE_LENGTH, PREFIX);
+                            } else {
+                                String shortUrl = op.target() < 0 ? PREFIX + "~" + code(i) : population[op.target()];
+                                ResolveStatus status = svc.resolveAndRegisterClick(shortUrl, owners[i % owners.length].toString()).getStatus();
+                                if (i >= w.warmup) statuses.get(status).increment();
+                            }
+                        } catch (RuntimeException e) {
+                            if (i >= w.warmup) errors.increment();
+                        }
+                        finished[i] = System.nanoTime();
+                        latency[i] = finished[i] - intended;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+
+        int from = Math.min(w.warmup, trace.size());
+        Map<OpType, long[]> byType = new EnumMap<>(OpType.class);
+        for (OpType type : OpType.values()) {
+            byType.put(type, java.util.stream.IntStream.range(from, trace.size())
+                    .filter(i -> trace.get(i).type() == type).mapToLong(i -> latency[i]).sorted().toArray());
+        }
+        long measuredStart = start + (from == 0 ? 0 : trace.get(from - 1).offsetMicros() * 1_000);
+        long end = Arrays.stream(finished).max().orElse(measuredStart);
+        Map<ResolveStatus, Long> statusCounts = new EnumMap<>(ResolveStatus.class);
+        statuses.forEach((s, n) -> statusCounts.put(s, n.sum()));
+        return new Report(byType, statusCounts, errors.sum(), Math.max(1, end - measuredStart), trace.size() - from);
+    }
+
+    /**
+     * Writes {@code trace} as CSV, preceded by a comment line with the workload it was generated for.
+     */
+    public static void writeTrace(Path file, Workload w, List<Op> trace) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write(WORKLOAD_COMMENT + w + "\n");
+            out.write("offset_us,op,target,ttl_s\n");
+            for (Op op : trace) {
+                out.write(op.offsetMicros() + "," + op.type().name().toLowerCase() + "," + op.target() + "," + op.ttlSeconds() + "\n");
+            }
+        }
+    }
+
+    public static List<Op> readTrace(Path file) throws IOException {
+        List<Op> trace = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.isBlank() || line.startsWith("#") || line.startsWith("offset_us")) continue;
+            String[] f = line.split(",");
+            trace.add(new Op(Long.parseLong(f[0]), OpType.valueOf(f[1].trim().toUpperCase()),
+                    Integer.parseInt(f[2]), Long.parseLong(f[3])));
+        }
+        return trace;
+    }
+
+    /**
+     * The workload a trace file was written for, empty for traces without one.
+     */
+    public static Optional<String> readTraceWorkload(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            String first = in.readLine();
+            return first != null && first.startsWith(WORKLOAD_COMMENT)
+                    ? Optional.of(first.substring(WORKLOAD_COMMENT.length()))
+                    : Optional.empty();
+        }
+    }
+
+    static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, s);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) cdf[k] /= sum;
+        return cdf;
+    }
+
+    static ToLongFunction<Random> ttlSampler(String spec) {
+        String[] f = spec.trim().split(":");
+        return switch (f[0]) {
+            case "fixed" -> r -> Long.parseLong(f[1]);
+            case "uniform" -> {
+                long min = Long.parseLong(f[1]), max = Long.parseLong(f[2]);
+                yield r -> min + (long) (r.nextDouble() * (max - min + 1));
+            }
+            case "exp" -> {
+                double mean = Double.parseDouble(f[1]);
+                yield r -> Math.round(-Math.log(1 - r.nextDouble()) * mean);
+            }
+            default -> throw new IllegalArgumentException("Unknown TTL distribution: " + spec);
+        };
+    }
+
+    private static String code(int i) {
+        StringBuilder sb = new StringBuilder(CODE_LENGTH);
+        for (int k = 0; k < CODE_LENGTH; k++, i /= Base62Generator.ALPHABET.length()) {
+            sb.append(Base62Generator.ALPHABET.charAt(i % Base62Generator.ALPHABET.length()));
+        }
+        return sb.toString();
+    }
+}
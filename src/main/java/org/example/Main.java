@@ -17,6 +17,8 @@ public class Main {
             InputStream in = Main.class.getResourceAsStream("/config.properties");
             properties.load(in);
             settings.from(properties);
+            // -Dkey=value overrides the bundled config, e.g. to run several shards on one host
+            settings.from(System.getProperties());
         } catch (IOException ex) {
             System.out.println(ex.getMessage());
         } finally {
@@ -0,0 +1,23 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.example.Notification")
+@Label("Notification Push")
+@Category("Link Shortener")
+@Description("Notification queued for a link owner")
+final class NotificationEvent extends Event {
+    @Label("Kind")
+    String kind;
+
+    @Label("Owner")
+    String owner;
+
+    NotificationEvent(String kind) {
+        this.kind = kind;
+    }
+}
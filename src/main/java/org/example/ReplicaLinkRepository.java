@@ -0,0 +1,300 @@
+package org.example;
+
+import java.io.*;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only follower of a {@link ReplicationLeader}.
+ *
+ * Keeps a local copy of the leader's links in the wrapped repository and serves lookups from it.
+ * Lookups fail once nothing has been heard from the leader for longer than the staleness bound.
+ * Clicks (saveLink of an existing link) and deletes are applied locally and forwarded to the leader,
+ * whose reply overwrites the local copy; new links must be created on the leader. Notifications are
+ * kept by the leader only: they are forwarded there and read from there.
+ * Clicks on links with a click limit are only granted by the leader, so followers cannot together
+ * exceed the limit; they fail with {@link LeaderUnavailableException} while the leader is unreachable. Other messages produced while the
+ * leader is unreachable are dropped.
+ */
+public class ReplicaLinkRepository implements LinkRepository, AutoCloseable {
+    private static final long RECONNECT_DELAY_MS = 200;
+
+    private final LinkRepository delegate;
+    private final String host;
+    private final int port;
+    private final long maxStalenessNanos;
+    private final CountDownLatch firstSync = new CountDownLatch(1);
+    private final Object sendLock = new Object();
+    private final AtomicLong nextRequestId = new AtomicLong();
+    // Requests waiting for the leader's answer, by request id.
+    private final Map<Long, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+    private volatile boolean synced;
+    private volatile long lastHeardNanos;
+    private volatile Socket socket;
+    private volatile DataOutputStream toLeader;
+
+    public ReplicaLinkRepository(LinkRepository delegate, String host, int port, Duration maxStaleness) {
+        this.delegate = delegate;
+        this.host = host;
+        this.port = port;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.lastHeardNanos = System.nanoTime();
+        Thread receiver = new Thread(this::receiveLoop, "replication-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /**
+     * Waits until the first snapshot from the leader has been applied.
+     */
+    public boolean awaitSync(Duration timeout) throws InterruptedException {
+        return firstSync.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public Duration getStaleness() {
+        return Duration.ofNanos(System.nanoTime() - lastHeardNanos);
+    }
+
+    public boolean isStale() {
+        return !synced || System.nanoTime() - lastHeardNanos > maxStalenessNanos;
+    }
+
+    @Override
+    public boolean shortExists(String shortUrl) {
+        return delegate.shortExists(shortUrl);
+    }
+
+    @Override
+    public Optional<LinkRecord> findByLong(String longUrl) {
+        return delegate.findByLong(longUrl);
+    }
+
+    @Override
+    public Optional<LinkRecord> findByShort(String shortUrl) {
+        if (!synced)
+            throw new IllegalStateException("Replica has not synced with leader yet");
+        if (isStale())
+            throw new IllegalStateException("Replica is stale, last heard from leader " + getStaleness().toMillis() + " ms ago");
+        return delegate.findByShort(shortUrl);
+    }
+
+    @Override
+    public void saveLink(LinkRecord record) {
+        if (!delegate.shortExists(record.getShortUrl()))
+            throw new IllegalStateException("Replica is read-only, create links on the leader");
+        delegate.saveLink(record);
+        send(out -> {
+            out.writeByte(ReplicationLeader.CLICK);
+            WireFormat.writeString(out, record.getShortUrl());
+        });
+    }
+
+    @Override
+    public boolean registerClick(LinkRecord record) {
+        if (record.getMaxClicks() == null) return LinkRepository.super.registerClick(record);
+        ClickAnswer a = (ClickAnswer) ask(ReplicationLeader.CLICK_LIMITED,
+                                          out -> WireFormat.writeString(out, record.getShortUrl()));
+        record.setClickState(a.clicks(), a.blocked());
+        return a.granted();
+    }
+
+    @Override
+    public boolean clicksDecidedRemotely(LinkRecord record) {
+        return record.getMaxClicks() != null;
+    }
+
+    @Override
+    public void deleteByShort(String shortUrl) {
+        delegate.deleteByShort(shortUrl);
+        send(out -> {
+            out.writeByte(ReplicationLeader.FORWARD_DELETE);
+            WireFormat.writeString(out, shortUrl);
+        });
+    }
+
+    @Override
+    public List<LinkRecord> findByOwner(UUID ownerId) {
+        return delegate.findByOwner(ownerId);
+    }
+
+    @Override
+    public List<LinkRecord> findAllLinks() {
+        return delegate.findAllLinks();
+    }
+
+    @Override
+    public void ensureUser(UUID userId) {
+        delegate.ensureUser(userId);
+    }
+
+    @Override
+    public void pushNotification(UUID userId, String message) {
+        send(out -> {
+            out.writeByte(ReplicationLeader.NOTIFY);
+            WireFormat.writeUuid(out, userId);
+            WireFormat.writeString(out, message);
+        });
+    }
+
+    @Override
+    public List<String> popNotifications(UUID userId) {
+        return ((Notifications) ask(ReplicationLeader.POP_NOTIFICATIONS, out -> WireFormat.writeUuid(out, userId))).messages();
+    }
+
+    @Override
+    public List<UUID> findAllUsers() {
+        return delegate.findAllUsers();
+    }
+
+    @Override
+    public void save() {
+        delegate.save();
+    }
+
+    @Override
+    public void load() {
+        delegate.load();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Socket s = socket;
+        if (s != null) s.close();
+        LinkRepositories.close(delegate);
+    }
+
+    private interface Message {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private record ClickAnswer(boolean granted, int clicks, boolean blocked) {}
+
+    private record Notifications(List<String> messages) {}
+
+    /**
+     * Sends a request the leader answers with its id and waits up to the staleness bound for the answer.
+     */
+    private Object ask(byte op, Message args) {
+        long id = nextRequestId.incrementAndGet();
+        CompletableFuture<Object> answer = new CompletableFuture<>();
+        pending.put(id, answer);
+        try {
+            boolean sent = send(out -> {
+                out.writeByte(op);
+                out.writeLong(id);
+                args.writeTo(out);
+            });
+            if (!sent) throw new LeaderUnavailableException("Replica is not connected to leader");
+            return answer.get(maxStalenessNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new LeaderUnavailableException("Leader did not answer", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LeaderUnavailableException("Interrupted while waiting for leader", e);
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    private boolean send(Message message) {
+        synchronized (sendLock) {
+            DataOutputStream out = toLeader;
+            if (out == null) return false;
+            try {
+                message.writeTo(out);
+                out.flush();
+                return true;
+            } catch (IOException e) {
+                toLeader = null;
+                return false;
+            }
+        }
+    }
+
+    private void receiveLoop() {
+        while (!closed) {
+            try (Socket s = new Socket(host, port)) {
+                s.setTcpNoDelay(true);
+                socket = s;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                synchronized (sendLock) {
+                    toLeader = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                }
+                applyStream(in);
+            } catch (IOException e) {
+                synchronized (sendLock) {
+                    toLeader = null;
+                }
+                pending.values().forEach(answer -> answer.completeExceptionally(e));
+            }
+            if (closed) return;
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void answer(long requestId, Object answer) {
+        CompletableFuture<Object> waiting = pending.get(requestId);
+        if (waiting != null) waiting.complete(answer);
+    }
+
+    private void applyStream(DataInputStream in) throws IOException {
+        Set<String> snapshot = null;
+        boolean dirty = false;
+        while (true) {
+            byte op = in.readByte();
+            lastHeardNanos = System.nanoTime();
+            switch (op) {
+                case ReplicationLeader.SNAPSHOT_BEGIN -> snapshot = new HashSet<>();
+                case ReplicationLeader.UPSERT -> {
+                    LinkRecord r = WireFormat.readLink(in);
+                    delegate.saveLink(r);
+                    if (snapshot != null) snapshot.add(r.getShortUrl());
+                    dirty = true;
+                }
+                case ReplicationLeader.DELETE -> {
+                    delegate.deleteByShort(WireFormat.readString(in));
+                    dirty = true;
+                }
+                case ReplicationLeader.SNAPSHOT_END -> {
+                    // Links deleted on the leader while we were disconnected.
+                    for (LinkRecord r : delegate.findAllLinks()) {
+                        if (!snapshot.contains(r.getShortUrl())) delegate.deleteByShort(r.getShortUrl());
+                    }
+                    snapshot = null;
+                    delegate.save();
+                    dirty = false;
+                    synced = true;
+                    firstSync.countDown();
+                }
+                case ReplicationLeader.CLICK_RESULT -> {
+                    long id = in.readLong();
+                    answer(id, new ClickAnswer(in.readBoolean(), in.readInt(), in.readBoolean()));
+                }
+                case ReplicationLeader.NOTIFICATIONS -> {
+                    long id = in.readLong();
+                    List<String> messages = new ArrayList<>();
+                    for (int n = in.readInt(); n > 0; n--) messages.add(WireFormat.readString(in));
+                    answer(id, new Notifications(messages));
+                }
+                case ReplicationLeader.HEARTBEAT -> {
+                    in.readLong();
+                    if (dirty) {
+                        delegate.save();
+                        dirty = false;
+                    }
+                }
+                default -> throw new IOException("Unknown replication message: " + op);
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package org.example;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Writer side of link replication.
+ *
+ * Wraps the authoritative repository and ships every link mutation to the connected followers over TCP.
+ * A follower first receives a snapshot of all links, then the live stream of upserts and deletes in the
+ * order they were applied here, interleaved with heartbeats. Followers send back clicks, deletes and
+ * notifications, which are applied to the wrapped repository and re-broadcast. Clicks on links with a
+ * click limit are granted or refused here and answered, so followers cannot over-count between them.
+ * Notifications live only here; followers read them with a request as well.
+ *
+ * Mutations only encode their message and offer it to each follower's bounded queue; a writer thread per
+ * follower does the socket I/O. A follower whose queue fills up is disconnected and resyncs on reconnect.
+ */
+public class ReplicationLeader implements LinkRepository, AutoCloseable {
+    // Leader -> follower
+    static final byte SNAPSHOT_BEGIN = 1;
+    static final byte SNAPSHOT_END = 2;
+    static final byte UPSERT = 3;
+    static final byte DELETE = 4;
+    static final byte HEARTBEAT = 5;
+    // Follower -> leader
+    static final byte CLICK = 6;
+    static final byte FORWARD_DELETE = 7;
+    static final byte NOTIFY = 8;
+    static final byte CLICK_LIMITED = 9;
+    static final byte POP_NOTIFICATIONS = 11;
+    // Leader -> follower, answers to CLICK_LIMITED and POP_NOTIFICATIONS
+    static final byte CLICK_RESULT = 10;
+    static final byte NOTIFICATIONS = 12;
+
+    private static final int QUEUE_CAPACITY = 65_536;
+
+    private interface Message {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private final LinkRepository delegate;
+    private final ServerSocket server;
+    private final List<Follower> followers = new CopyOnWriteArrayList<>();
+    // Guards the order of mutations and the messages describing them.
+    private final Object streamLock = new Object();
+    private final ScheduledExecutorService heartbeats;
+    private volatile boolean closed;
+
+    public ReplicationLeader(LinkRepository delegate, int port, Duration heartbeatInterval) {
+        this.delegate = delegate;
+        try {
+            this.server = new ServerSocket(port);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to start replication leader: " + e.getMessage(), e);
+        }
+        Thread acceptor = new Thread(this::acceptLoop, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replication-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = heartbeatInterval.toMillis();
+        heartbeats.scheduleAtFixedRate(() -> {
+            long now = System.currentTimeMillis();
+            synchronized (streamLock) {
+                broadcast(out -> {
+                    out.writeByte(HEARTBEAT);
+                    out.writeLong(now);
+                });
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getFollowerCount() {
+        return followers.size();
+    }
+
+    @Override
+    public boolean shortExists(String shortUrl) {
+        return delegate.shortExists(shortUrl);
+    }
+
+    @Override
+    public Optional<LinkRecord> findByLong(String longUrl) {
+        return delegate.findByLong(longUrl);
+    }
+
+    @Override
+    public Optional<LinkRecord> findByShort(String shortUrl) {
+        return delegate.findByShort(shortUrl);
+    }
+
+    @Override
+    public void saveLink(LinkRecord record) {
+        synchronized (streamLock) {
+            delegate.saveLink(record);
+            broadcast(out -> {
+                out.writeByte(UPSERT);
+                WireFormat.writeLink(out, record);
+            });
+        }
+    }
+
+    /**
+     * Checks and counts under the stream lock, like clicks forwarded by followers, so local and
+     * forwarded clicks on one link cannot both pass the limit check.
+     */
+    @Override
+    public boolean registerClick(LinkRecord record) {
+        synchronized (streamLock) {
+            // the caller's copy may predate clicks forwarded since it was read
+            LinkRecord current = delegate.findByShort(record.getShortUrl()).orElse(record);
+            boolean granted = !current.isBlockedByLimit();
+            if (granted) {
+                current.registerClick();
+                saveLink(current);
+                delegate.save();
+            }
+            if (current != record) record.setClickState(current.getClicks(), current.isBlockedByLimit());
+            return granted;
+        }
+    }
+
+    @Override
+    public void deleteByShort(String shortUrl) {
+        synchronized (streamLock) {
+            delegate.deleteByShort(shortUrl);
+            broadcast(out -> {
+                out.writeByte(DELETE);
+                WireFormat.writeString(out, shortUrl);
+            });
+        }
+    }
+
+    @Override
+    public List<LinkRecord> findByOwner(UUID ownerId) {
+        return delegate.findByOwner(ownerId);
+    }
+
+    @Override
+    public List<LinkRecord> findAllLinks() {
+        return delegate.findAllLinks();
+    }
+
+    @Override
+    public void ensureUser(UUID userId) {
+        delegate.ensureUser(userId);
+    }
+
+    @Override
+    public void pushNotification(UUID userId, String message) {
+        delegate.pushNotification(userId, message);
+    }
+
+    @Override
+    public List<String> popNotifications(UUID userId) {
+        return delegate.popNotifications(userId);
+    }
+
+    @Override
+    public List<UUID> findAllUsers() {
+        return delegate.findAllUsers();
+    }
+
+    @Override
+    public void save() {
+        delegate.save();
+    }
+
+    @Override
+    public void load() {
+        delegate.load();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        heartbeats.shutdownNow();
+        server.close();
+        for (Follower f : followers) f.close();
+        LinkRepositories.close(delegate);
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Follower f = new Follower(server.accept());
+                // Taking the snapshot and joining the broadcast under one lock means no mutation is
+                // missed or applied twice; the follower's writer sends the snapshot off this lock.
+                synchronized (streamLock) {
+                    f.snapshot = delegate.findAllLinks();
+                    followers.add(f);
+                }
+                f.start();
+            } catch (IOException e) {
+                if (!closed) System.out.println("Replication: " + e.getMessage());
+            }
+        }
+    }
+
+    private static byte[] encode(Message message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            message.writeTo(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void broadcast(Message message) {
+        if (followers.isEmpty()) return;
+        byte[] bytes = encode(message);
+        for (Follower f : followers) f.enqueue(bytes);
+    }
+
+    private void applyClick(String shortUrl) {
+        synchronized (streamLock) {
+            Optional<LinkRecord> opt = delegate.findByShort(shortUrl);
+            if (opt.isEmpty()) return;
+            LinkRecord r = opt.get();
+            // Past the limit the leader only re-sends its state so the follower converges.
+            if (!r.isBlockedByLimit()) r.registerClick();
+            saveLink(r);
+            delegate.save();
+        }
+    }
+
+    private void applyLimitedClick(Follower from, long requestId, String shortUrl) {
+        boolean granted;
+        int clicks;
+        boolean blocked;
+        synchronized (streamLock) {
+            // a link deleted meanwhile is refused like a blocked one; its DELETE is already queued
+            LinkRecord r = delegate.findByShort(shortUrl).orElse(null);
+            granted = r != null && !r.isBlockedByLimit();
+            if (granted) {
+                r.registerClick();
+                saveLink(r);
+                delegate.save();
+            }
+            clicks = r == null ? 0 : r.getClicks();
+            blocked = r == null || r.isBlockedByLimit();
+        }
+        // queued behind the upsert, so the follower's copy is current when the answer arrives
+        from.enqueue(encode(out -> {
+            out.writeByte(CLICK_RESULT);
+            out.writeLong(requestId);
+            out.writeBoolean(granted);
+            out.writeInt(clicks);
+            out.writeBoolean(blocked);
+        }));
+    }
+
+    private void answerNotifications(Follower from, long requestId, UUID userId) {
+        List<String> messages = delegate.popNotifications(userId);
+        from.enqueue(encode(out -> {
+            out.writeByte(NOTIFICATIONS);
+            out.writeLong(requestId);
+            out.writeInt(messages.size());
+            for (String m : messages) WireFormat.writeString(out, m);
+        }));
+    }
+
+    private void applyDelete(String shortUrl) {
+        synchronized (streamLock) {
+            if (!delegate.shortExists(shortUrl)) return;
+            deleteByShort(shortUrl);
+            delegate.save();
+        }
+    }
+
+    private class Follower implements Runnable {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile List<LinkRecord> snapshot;
+        private volatile Thread writer;
+
+        Follower(Socket socket) throws IOException {
+            this.socket = socket;
+            this.socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void start() {
+            String name = "replication-follower-" + socket.getRemoteSocketAddress();
+            Thread reader = new Thread(this, name);
+            reader.setDaemon(true);
+            reader.start();
+            writer = new Thread(this::writeLoop, name + "-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        void enqueue(byte[] message) {
+            if (!queue.offer(message)) close(); // fell behind; it resyncs from a snapshot on reconnect
+        }
+
+        private void writeLoop() {
+            try {
+                out.writeByte(SNAPSHOT_BEGIN);
+                for (LinkRecord r : snapshot) {
+                    out.writeByte(UPSERT);
+                    WireFormat.writeLink(out, r);
+                }
+                out.writeByte(SNAPSHOT_END);
+                snapshot = null;
+                while (true) {
+                    byte[] message = queue.poll();
+                    if (message == null) {
+                        out.flush();
+                        message = queue.take();
+                    }
+                    out.write(message);
+                }
+            } catch (IOException | InterruptedException e) {
+                close();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    byte op = in.readByte();
+                    switch (op) {
+                        case CLICK -> applyClick(WireFormat.readString(in));
+                        case CLICK_LIMITED -> applyLimitedClick(this, in.readLong(), WireFormat.readString(in));
+                        case FORWARD_DELETE -> applyDelete(WireFormat.readString(in));
+                        case NOTIFY -> delegate.pushNotification(WireFormat.readUuid(in), WireFormat.readString(in));
+                        case POP_NOTIFICATIONS -> answerNotifications(this, in.readLong(), WireFormat.readUuid(in));
+                        default -> throw new IOException("Unknown replication message: " + op);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            followers.remove(this);
+            Thread w = writer;
+            if (w != null) w.interrupt();
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
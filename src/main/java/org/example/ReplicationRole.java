@@ -0,0 +1,5 @@
+package org.example;
+
+public enum ReplicationRole {
+    NONE, LEADER, FOLLOWER
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Compares {@link FileLinkRepository} and {@link JdbcLinkRepository} on a synthetic data set.
+ * Usage: {@code RepositoryBenchmark [links] [owners]}, defaults to 1M links over 10k owners.
+ */
+public class RepositoryBenchmark {
+    private static final int SHORT_LOOKUPS = 100_000;
+    private static final int OWNER_LOOKUPS = 1_000;
+    private static final int LONG_LOOKUPS = 20;
+    private static final int CLICKS = 100_000;
+
+    public static void main(String[] args) throws IOException {
+        int links = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int owners = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        Path dir = Files.createTempDirectory("link-bench");
+
+        run("file", links, owners, n -> new FileLinkRepository(dir.resolve("repo-" + n).toString()));
+        run("jdbc", links, owners, n -> new JdbcLinkRepository("jdbc:h2:file:" + dir.resolve("repo-h2-" + n)));
+    }
+
+    private static void run(String name, int links, int owners, Function<Integer, LinkRepository> factory) {
+        Random rnd = new Random(42);
+        UUID[] ownerIds = new UUID[owners];
+        for (int i = 0; i < owners; i++) ownerIds[i] = new UUID(rnd.nextLong(), rnd.nextLong());
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+
+        LinkRepository repo = factory.apply(0);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < links; i++) {
+            Instant created = start.plusMillis(i);
+            repo.saveLink(new LinkRecord(ownerIds[i % owners], longUrl(i), shortUrl(i),
+                    created, created.plus(Duration.ofDays(1)), null));
+        }
+        repo.save();
+        report(name, "insert+save", links, t0);
+
+        t0 = System.nanoTime();
+        for (int i = 0; i < SHORT_LOOKUPS; i++) repo.findByShort(shortUrl(rnd.nextInt(links)));
+        report(name, "findByShort", SHORT_LOOKUPS, t0);
+
+        t0 = System.nanoTime();
+        for (int i = 0; i < OWNER_LOOKUPS; i++) repo.findByOwner(ownerIds[rnd.nextInt(owners)]);
+        report(name, "findByOwner", OWNER_LOOKUPS, t0);
+
+        t0 = System.nanoTime();
+        for (int i = 0; i < LONG_LOOKUPS; i++) repo.findByLong(longUrl(rnd.nextInt(links)));
+        report(name, "findByLong", LONG_LOOKUPS, t0);
+
+        t0 = System.nanoTime();
+        for (int i = 0; i < CLICKS; i++) {
+            LinkRecord r = repo.findByShort(shortUrl(rnd.nextInt(links))).orElseThrow();
+            r.registerClick();
+            repo.saveLink(r);
+        }
+        repo.save();
+        report(name, "click+save", CLICKS, t0);
+
+        if (repo instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    private static String shortUrl(int i) {
+        return "clck.ru/" + Integer.toString(i, 36);
+    }
+
+    private static String longUrl(int i) {
+        return "https://example.com/articles/" + i + "?utm_source=bench&utm_medium=link";
+    }
+
+    private static void report(String repo, String op, int count, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        System.out.printf("%-5s %-12s %9d ops %10.1f ms %12.2f us/op%n",
+                repo, op, count, elapsed / 1e6, elapsed / 1e3 / count);
+    }
+}
@@ -0,0 +1,32 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.example.RepositoryPersist")
+@Label("Repository Persist")
+@Category("Link Shortener")
+@Description("Snapshot save or load of a link repository")
+final class RepositoryPersistEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Records")
+    int records;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    RepositoryPersistEvent(String operation, String repository) {
+        this.operation = operation;
+        this.repository = repository;
+    }
+}
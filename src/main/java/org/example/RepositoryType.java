@@ -0,0 +1,5 @@
+package org.example;
+
+public enum RepositoryType {
+    FILE, MEMORY, JDBC
+}
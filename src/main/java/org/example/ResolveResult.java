@@ -13,6 +13,7 @@ public class ResolveResult {
     public static ResolveResult nf() { return new ResolveResult(ResolveStatus.NOT_FOUND, null); }
     public static ResolveResult expired() { return new ResolveResult(ResolveStatus.EXPIRED, null); }
     public static ResolveResult limit() { return new ResolveResult(ResolveStatus.LIMIT_REACHED, null); }
+    public static ResolveResult rejected() { return new ResolveResult(ResolveStatus.REJECTED, null); }
 
     public ResolveStatus getStatus() { return status; }
     public String getLongUrl() { return longUrl; }
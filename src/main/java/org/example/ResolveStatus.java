@@ -1,5 +1,5 @@
 package org.example;
 
 public enum ResolveStatus {
-    OK, NOT_FOUND, EXPIRED, LIMIT_REACHED
+    OK, NOT_FOUND, EXPIRED, LIMIT_REACHED, REJECTED
 }
@@ -1,11 +1,33 @@
 package org.example;
 import java.io.File;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.UUID;
 
 public class ServiceSettings {
     private File repositoryPath;
+    private RepositoryType repositoryType;
+    private String jdbcUrl;
+    private ReplicationRole replicationRole;
+    private String replicationHost;
+    private int replicationPort;
+    private long replicationHeartbeatMs;
+    private long replicationMaxStalenessMs;
+    private String codeLeaseFile;
+    private long codeLeaseBlock;
+    private long codeLeaseTtlMs;
+    private String nodeId;
+    private int shardVirtualNodes;
+    private double createRate;
+    private int createBurst;
+    private double resolveRate;
+    private int resolveBurst;
+    private int concurrencyMin;
+    private int concurrencyMax;
+    private long latencyTargetMs;
+    private int admissionMaxTrackedKeys;
     private String serviceAddress;
     private int codeLength;
     private int maxClics;
@@ -13,6 +35,26 @@ public class ServiceSettings {
 
     public ServiceSettings() {
         repositoryPath = new File("/tmp/link-shortener");
+        repositoryType = RepositoryType.FILE;
+        jdbcUrl = null;
+        replicationRole = ReplicationRole.NONE;
+        replicationHost = "localhost";
+        replicationPort = 7070;
+        replicationHeartbeatMs = 500;
+        replicationMaxStalenessMs = 5000;
+        codeLeaseFile = "";
+        codeLeaseBlock = 10000;
+        codeLeaseTtlMs = 60000;
+        shardVirtualNodes = 64;
+        createRate = 0;
+        createBurst = 20;
+        resolveRate = 0;
+        resolveBurst = 100;
+        concurrencyMin = 1;
+        concurrencyMax = 0;
+        latencyTargetMs = 50;
+        admissionMaxTrackedKeys = 100000;
+        nodeId = ProcessHandle.current().pid() + "@" + System.getProperty("user.name");
         serviceAddress = "clck.ru";
         codeLength = 6;
         maxClics = 2;
@@ -21,6 +63,26 @@ public class ServiceSettings {
 
     public void from(Properties props){
         repositoryPath = new File(props.getProperty("repository_path", repositoryPath.getAbsolutePath()));
+        repositoryType = RepositoryType.valueOf(props.getProperty("repository.type", repositoryType.name()).trim().toUpperCase());
+        jdbcUrl = props.getProperty("repository.jdbc.url", jdbcUrl);
+        replicationRole = ReplicationRole.valueOf(props.getProperty("replication.role", replicationRole.name()).trim().toUpperCase());
+        replicationHost = props.getProperty("replication.host", replicationHost);
+        replicationPort = Integer.parseInt(props.getProperty("replication.port", String.valueOf(replicationPort)));
+        replicationHeartbeatMs = Long.parseLong(props.getProperty("replication.heartbeat_ms", String.valueOf(replicationHeartbeatMs)));
+        replicationMaxStalenessMs = Long.parseLong(props.getProperty("replication.max_staleness_ms", String.valueOf(replicationMaxStalenessMs)));
+        codeLeaseFile = props.getProperty("codes.lease_file", codeLeaseFile).trim();
+        codeLeaseBlock = Long.parseLong(props.getProperty("codes.lease_block", String.valueOf(codeLeaseBlock)));
+        codeLeaseTtlMs = Long.parseLong(props.getProperty("codes.lease_ttl_ms", String.valueOf(codeLeaseTtlMs)));
+        nodeId = props.getProperty("codes.node_id", nodeId);
+        shardVirtualNodes = Integer.parseInt(props.getProperty("sharding.virtual_nodes", String.valueOf(shardVirtualNodes)));
+        createRate = Double.parseDouble(props.getProperty("admission.create_rate", String.valueOf(createRate)));
+        createBurst = Integer.parseInt(props.getProperty("admission.create_burst", String.valueOf(createBurst)));
+        resolveRate = Double.parseDouble(props.getProperty("admission.resolve_rate", String.valueOf(resolveRate)));
+        resolveBurst = Integer.parseInt(props.getProperty("admission.resolve_burst", String.valueOf(resolveBurst)));
+        concurrencyMin = Integer.parseInt(props.getProperty("admission.concurrency_min", String.valueOf(concurrencyMin)));
+        concurrencyMax = Integer.parseInt(props.getProperty("admission.concurrency_max", String.valueOf(concurrencyMax)));
+        latencyTargetMs = Long.parseLong(props.getProperty("admission.latency_target_ms", String.valueOf(latencyTargetMs)));
+        admissionMaxTrackedKeys = Integer.parseInt(props.getProperty("admission.max_tracked_keys", String.valueOf(admissionMaxTrackedKeys)));
         serviceAddress = props.getProperty("service_address", serviceAddress);
         codeLength = Integer.parseInt(props.getProperty("code_length", String.valueOf(codeLength)));
         maxClics = Integer.parseInt(props.getProperty("max_clics", String.valueOf(maxClics)));
@@ -33,6 +95,77 @@ public class ServiceSettings {
     public File getRepositoryFile() {
         return repositoryPath;
     }
+    public RepositoryType getRepositoryType() {
+        return repositoryType;
+    }
+    public String getJdbcUrl() {
+        if (jdbcUrl != null)
+            return jdbcUrl;
+        return "jdbc:h2:file:" + new File(repositoryPath, "repo-h2").getAbsolutePath();
+    }
+    public ReplicationRole getReplicationRole() {
+        return replicationRole;
+    }
+    public String getReplicationHost() {
+        return replicationHost;
+    }
+    public int getReplicationPort() {
+        return replicationPort;
+    }
+    public Duration getReplicationHeartbeat() {
+        return Duration.ofMillis(replicationHeartbeatMs);
+    }
+    public Duration getReplicationMaxStaleness() {
+        return Duration.ofMillis(replicationMaxStalenessMs);
+    }
+    public Optional<Path> getCodeLeaseFile() {
+        return codeLeaseFile.isEmpty() ? Optional.empty() : Optional.of(Path.of(codeLeaseFile));
+    }
+    public long getCodeLeaseBlock() {
+        return codeLeaseBlock;
+    }
+    public Duration getCodeLeaseTtl() {
+        return Duration.ofMillis(codeLeaseTtlMs);
+    }
+    public String getNodeId() {
+        return nodeId;
+    }
+    public int getShardVirtualNodes() {
+        return shardVirtualNodes;
+    }
+    /**
+     * Links one owner may create per second, 0 for no limit.
+     */
+    public double getCreateRate() {
+        return createRate;
+    }
+    public int getCreateBurst() {
+        return createBurst;
+    }
+    /**
+     * Resolves one client may make per second, 0 for no limit.
+     */
+    public double getResolveRate() {
+        return resolveRate;
+    }
+    public int getResolveBurst() {
+        return resolveBurst;
+    }
+    public int getConcurrencyMin() {
+        return concurrencyMin;
+    }
+    /**
+     * Upper bound of the adaptive limit on requests in flight, 0 for no limit.
+     */
+    public int getConcurrencyMax() {
+        return concurrencyMax;
+    }
+    public Duration getLatencyTarget() {
+        return Duration.ofMillis(latencyTargetMs);
+    }
+    public int getAdmissionMaxTrackedKeys() {
+        return admissionMaxTrackedKeys;
+    }
     public Duration getTtl() {
         return Duration.ofSeconds(ttl);
     }
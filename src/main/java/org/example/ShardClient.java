@@ -0,0 +1,176 @@
+package org.example;
+
+import java.io.*;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Connection to one {@link ShardServer}. Calls are serialized over a single socket which is
+ * reopened on the next call after an I/O failure.
+ */
+public class ShardClient implements AutoCloseable {
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface Reply<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private final String host;
+    private final int port;
+    private Socket socket;
+    private DataInputStream in;
+    private DataOutputStream out;
+
+    public ShardClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Parses {@code host:port}.
+     */
+    public static ShardClient of(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) throw new IllegalArgumentException("Expected host:port, got " + address);
+        return new ShardClient(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    public String getAddress() {
+        return host + ":" + port;
+    }
+
+    public Optional<LinkRecord> create(UUID userId, String longUrl, Integer maxClicks, Duration ttl, String code, String prefix) {
+        return call(ShardServer.CREATE, o -> {
+            WireFormat.writeUuid(o, userId);
+            WireFormat.writeString(o, longUrl);
+            o.writeInt(maxClicks == null ? -1 : maxClicks);
+            o.writeLong(ttl.getSeconds());
+            o.writeInt(ttl.getNano());
+            WireFormat.writeString(o, code);
+            WireFormat.writeString(o, prefix);
+        }, i -> i.readBoolean() ? Optional.of(WireFormat.readLink(i)) : Optional.empty());
+    }
+
+    public ResolveResult resolve(String shortUrl) {
+        return resolve(shortUrl, null);
+    }
+
+    public ResolveResult resolve(String shortUrl, String clientId) {
+        return call(ShardServer.RESOLVE, o -> {
+            WireFormat.writeString(o, shortUrl);
+            WireFormat.writeString(o, clientId == null ? "" : clientId);
+        }, i ->
+                switch (WireFormat.readStatus(i)) {
+                    case OK -> ResolveResult.ok(WireFormat.readString(i));
+                    case NOT_FOUND -> ResolveResult.nf();
+                    case EXPIRED -> ResolveResult.expired();
+                    case LIMIT_REACHED -> ResolveResult.limit();
+                    case REJECTED -> ResolveResult.rejected();
+                });
+    }
+
+    public List<LinkRecord> list(UUID userId) {
+        return call(ShardServer.LIST, o -> WireFormat.writeUuid(o, userId), ShardServer::readLinks);
+    }
+
+    public boolean delete(UUID userId, String shortUrl) {
+        return call(ShardServer.DELETE, o -> {
+            WireFormat.writeUuid(o, userId);
+            WireFormat.writeString(o, shortUrl);
+        }, DataInputStream::readBoolean);
+    }
+
+    public List<String> popNotifications(UUID userId) {
+        return call(ShardServer.NOTES, o -> WireFormat.writeUuid(o, userId), i -> {
+            List<String> notes = new ArrayList<>();
+            for (int n = i.readInt(); n > 0; n--) notes.add(WireFormat.readString(i));
+            return notes;
+        });
+    }
+
+    public int cleanup() {
+        return call(ShardServer.CLEANUP, o -> { }, DataInputStream::readInt);
+    }
+
+    /**
+     * Links whose code hashes into one of the arcs; all links when {@code arcs} is empty.
+     */
+    public List<LinkRecord> export(Collection<ConsistentHashRing.Arc> arcs) {
+        return call(ShardServer.EXPORT, o -> {
+            o.writeInt(arcs.size());
+            for (ConsistentHashRing.Arc a : arcs) {
+                o.writeLong(a.getFromExclusive());
+                o.writeLong(a.getToInclusive());
+            }
+        }, ShardServer::readLinks);
+    }
+
+    public void importLinks(List<LinkRecord> links) {
+        call(ShardServer.IMPORT, o -> ShardServer.writeLinks(o, links), i -> null);
+    }
+
+    /**
+     * Pops all pending notifications on the shard, keyed by user.
+     */
+    public Map<UUID, List<String>> drainNotifications() {
+        return call(ShardServer.NOTES_EXPORT, o -> { }, ShardServer::readNotes);
+    }
+
+    public void importNotifications(Map<UUID, List<String>> notes) {
+        call(ShardServer.NOTES_IMPORT, o -> ShardServer.writeNotes(o, notes), i -> null);
+    }
+
+    public void remove(Collection<String> shortUrls) {
+        call(ShardServer.REMOVE, o -> {
+            o.writeInt(shortUrls.size());
+            for (String s : shortUrls) WireFormat.writeString(o, s);
+        }, i -> null);
+    }
+
+    @Override
+    public synchronized void close() {
+        disconnect();
+    }
+
+    private synchronized <T> T call(byte op, Body body, Reply<T> reply) {
+        try {
+            if (socket == null) connect();
+            out.writeByte(op);
+            body.write(out);
+            out.flush();
+            byte status = in.readByte();
+            if (status == ShardServer.OK) return reply.read(in);
+            String message = WireFormat.readString(in);
+            if (status == ShardServer.ILLEGAL_ARGUMENT) throw new IllegalArgumentException(message);
+            if (status == ShardServer.REJECTED) throw new AdmissionRejectedException(message);
+            throw new IllegalStateException("Shard " + getAddress() + ": " + message);
+        } catch (IOException e) {
+            disconnect();
+            throw new RuntimeException("Shard " + getAddress() + " unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    private void connect() throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    private void disconnect() {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+        socket = null;
+    }
+}
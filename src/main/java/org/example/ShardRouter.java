@@ -0,0 +1,183 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Routes shortener calls to the shard owning each code on a {@link ConsistentHashRing}.
+ *
+ * The router mints codes itself and creates each link on the shard its code hashes to, so resolve
+ * and delete need no lookup table. Per-user listing and notifications are gathered from all shards.
+ * When a shard joins, only links in the arcs it takes over are copied to it; when one leaves, its
+ * links and pending notifications are spread over the remaining shards. Calls read the ring under a
+ * shared lock and migration holds it exclusively, so no link is created on, clicked on or deleted
+ * from an old owner while its links are being moved.
+ */
+public class ShardRouter implements LinkShortener, AutoCloseable {
+    private final ShortCodeGenerator generator;
+    private final ExecutorService scatter;
+    private final ReadWriteLock migration = new ReentrantReadWriteLock();
+    private volatile ConsistentHashRing<ShardClient> ring;
+
+    public ShardRouter(List<ShardClient> shards, int virtualNodes, ShortCodeGenerator generator) {
+        this.generator = generator;
+        ConsistentHashRing<ShardClient> r = new ConsistentHashRing<>(virtualNodes);
+        for (ShardClient shard : shards) r = r.withNode(shard.getAddress(), shard);
+        this.ring = r;
+        this.scatter = Executors.newCachedThreadPool(task -> {
+            Thread t = new Thread(task, "shard-scatter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public Collection<ShardClient> getShards() {
+        return ring.nodes();
+    }
+
+    @Override
+    public LinkRecord createShortLink(UUID userId, String longUrl, Integer maxClicks, Duration ttl, int codeLen, String prefix) {
+        if (codeLen <= 0) throw new IllegalArgumentException("codeLen must be > 0");
+        while (true) {
+            String code = generator.nextCode(codeLen);
+            Optional<LinkRecord> r = routed(() -> ring.owner(code).create(userId, longUrl, maxClicks, ttl, code, prefix));
+            if (r.isPresent()) return r.get();
+        }
+    }
+
+    @Override
+    public ResolveResult resolveAndRegisterClick(String shortUrl) {
+        return resolveAndRegisterClick(shortUrl, null);
+    }
+
+    @Override
+    public ResolveResult resolveAndRegisterClick(String shortUrl, String clientId) {
+        Objects.requireNonNull(shortUrl, "shortUrl");
+        return routed(() -> ring.owner(LinkRecord.codeOf(shortUrl)).resolve(shortUrl, clientId));
+    }
+
+    @Override
+    public List<LinkRecord> listLinksByUser(UUID userId) {
+        Objects.requireNonNull(userId, "userId");
+        List<LinkRecord> out = new ArrayList<>();
+        for (List<LinkRecord> part : gather(shard -> shard.list(userId))) out.addAll(part);
+        out.sort(Comparator.comparing(LinkRecord::getCreatedAt));
+        return out;
+    }
+
+    @Override
+    public boolean deleteLink(UUID userId, String shortUrl) {
+        Objects.requireNonNull(userId, "userId");
+        Objects.requireNonNull(shortUrl, "shortUrl");
+        return routed(() -> ring.owner(LinkRecord.codeOf(shortUrl)).delete(userId, shortUrl));
+    }
+
+    @Override
+    public int cleanupExpiredLinks() {
+        int removed = 0;
+        for (int n : gather(ShardClient::cleanup)) removed += n;
+        return removed;
+    }
+
+    @Override
+    public List<String> popNotifications(UUID userId) {
+        List<String> out = new ArrayList<>();
+        for (List<String> part : gather(shard -> shard.popNotifications(userId))) out.addAll(part);
+        return out;
+    }
+
+    /**
+     * Adds a shard and moves to it the links in the arcs it now owns.
+     */
+    public void addShard(ShardClient shard) {
+        migration.writeLock().lock();
+        try {
+            moveTo(shard);
+        } finally {
+            migration.writeLock().unlock();
+        }
+    }
+
+    private void moveTo(ShardClient shard) {
+        ConsistentHashRing<ShardClient> next = ring.withNode(shard.getAddress(), shard);
+        List<ConsistentHashRing.Arc> arcs = next.arcsOf(shard.getAddress());
+        Map<ShardClient, List<String>> moved = new LinkedHashMap<>();
+        for (ShardClient old : ring.nodes()) {
+            List<LinkRecord> links = old.export(arcs);
+            if (links.isEmpty()) continue;
+            shard.importLinks(links);
+            moved.put(old, links.stream().map(LinkRecord::getShortUrl).toList());
+        }
+        ring = next;
+        moved.forEach(ShardClient::remove);
+    }
+
+    /**
+     * Removes a shard after handing its links and pending notifications to their new owners.
+     */
+    public void removeShard(String address) {
+        migration.writeLock().lock();
+        try {
+            moveFrom(address);
+        } finally {
+            migration.writeLock().unlock();
+        }
+    }
+
+    private void moveFrom(String address) {
+        ShardClient leaving = ring.node(address)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown shard: " + address));
+        ConsistentHashRing<ShardClient> next = ring.withoutNode(address);
+        if (next.size() == 0) throw new IllegalStateException("Cannot remove the last shard");
+        Map<ShardClient, List<LinkRecord>> byOwner = new LinkedHashMap<>();
+        for (LinkRecord r : leaving.export(List.of())) {
+            byOwner.computeIfAbsent(next.owner(LinkRecord.codeOf(r.getShortUrl())), k -> new ArrayList<>()).add(r);
+        }
+        byOwner.forEach(ShardClient::importLinks);
+        // Notifications are gathered from every shard, so any remaining one can hold them.
+        Map<ShardClient, Map<UUID, List<String>>> notesByOwner = new LinkedHashMap<>();
+        leaving.drainNotifications().forEach((userId, notes) ->
+                notesByOwner.computeIfAbsent(next.owner(userId.toString()), k -> new LinkedHashMap<>()).put(userId, notes));
+        notesByOwner.forEach(ShardClient::importNotifications);
+        ring = next;
+        leaving.close();
+    }
+
+    @Override
+    public void close() {
+        scatter.shutdownNow();
+        for (ShardClient shard : ring.nodes()) shard.close();
+    }
+
+    private <T> T routed(Supplier<T> call) {
+        migration.readLock().lock();
+        try {
+            return call.get();
+        } finally {
+            migration.readLock().unlock();
+        }
+    }
+
+    private <T> List<T> gather(Function<ShardClient, T> call) {
+        return routed(() -> {
+            List<Future<T>> futures = new ArrayList<>();
+            for (ShardClient shard : ring.nodes()) futures.add(scatter.submit(() -> call.apply(shard)));
+            List<T> out = new ArrayList<>(futures.size());
+            try {
+                for (Future<T> f : futures) out.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while querying shards", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw new IllegalStateException(e.getCause());
+            }
+            return out;
+        });
+    }
+}
@@ -0,0 +1,249 @@
+package org.example;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Serves one shard of a sharded cluster: a {@link ShortenerService} and its repository behind a
+ * request/response TCP protocol spoken by {@link ShardClient}.
+ */
+public class ShardServer implements AutoCloseable {
+    // Requests
+    static final byte CREATE = 1;
+    static final byte RESOLVE = 2;
+    static final byte LIST = 3;
+    static final byte DELETE = 4;
+    static final byte NOTES = 5;
+    static final byte CLEANUP = 6;
+    static final byte EXPORT = 7;
+    static final byte IMPORT = 8;
+    static final byte REMOVE = 9;
+    static final byte NOTES_EXPORT = 10;
+    static final byte NOTES_IMPORT = 11;
+    // Response status
+    static final byte OK = 0;
+    static final byte ILLEGAL_ARGUMENT = 1;
+    static final byte FAILED = 2;
+    static final byte REJECTED = 3;
+
+    private final ShortenerService service;
+    private final LinkRepository repo;
+    private final ServerSocket server;
+    private volatile boolean closed;
+
+    public ShardServer(ShortenerService service, LinkRepository repo, int port) {
+        this.service = service;
+        this.repo = repo;
+        try {
+            this.server = new ServerSocket(port);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to start shard server: " + e.getMessage(), e);
+        }
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Starts accepting clients; the accept thread keeps the JVM alive until {@link #close()}.
+     */
+    public ShardServer start() {
+        new Thread(this::acceptLoop, "shard-accept-" + getPort()).start();
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                Thread t = new Thread(() -> serve(socket), "shard-client-" + socket.getRemoteSocketAddress());
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                if (!closed) System.out.println("Shard server: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                byte op = in.readByte();
+                // The whole request is read before handling so a failure leaves the stream in sync.
+                Request request = readRequest(op, in);
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                try {
+                    request.handle(new DataOutputStream(body));
+                    out.writeByte(OK);
+                    out.write(body.toByteArray());
+                } catch (IllegalArgumentException e) {
+                    out.writeByte(ILLEGAL_ARGUMENT);
+                    WireFormat.writeString(out, String.valueOf(e.getMessage()));
+                } catch (AdmissionRejectedException e) {
+                    out.writeByte(REJECTED);
+                    WireFormat.writeString(out, String.valueOf(e.getMessage()));
+                } catch (RuntimeException e) {
+                    out.writeByte(FAILED);
+                    WireFormat.writeString(out, String.valueOf(e.getMessage()));
+                }
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // client went away
+        } catch (IOException e) {
+            if (!closed) System.out.println("Shard server: " + e.getMessage());
+        }
+    }
+
+    private interface Request {
+        void handle(DataOutputStream out) throws IOException;
+    }
+
+    private Request readRequest(byte op, DataInputStream in) throws IOException {
+        switch (op) {
+            case CREATE: {
+                UUID userId = WireFormat.readUuid(in);
+                String longUrl = WireFormat.readString(in);
+                int maxClicks = in.readInt();
+                Duration ttl = Duration.ofSeconds(in.readLong(), in.readInt());
+                String code = WireFormat.readString(in);
+                String prefix = WireFormat.readString(in);
+                return out -> {
+                    Optional<LinkRecord> r = service.createShortLinkWithCode(userId, longUrl,
+                            maxClicks < 0 ? null : maxClicks, ttl, code, prefix);
+                    out.writeBoolean(r.isPresent());
+                    if (r.isPresent()) WireFormat.writeLink(out, r.get());
+                };
+            }
+            case RESOLVE: {
+                String shortUrl = WireFormat.readString(in);
+                String clientId = WireFormat.readString(in);
+                return out -> {
+                    ResolveResult result = service.resolveAndRegisterClick(shortUrl, clientId.isEmpty() ? null : clientId);
+                    WireFormat.writeStatus(out, result.getStatus());
+                    if (result.getStatus() == ResolveStatus.OK) WireFormat.writeString(out, result.getLongUrl());
+                };
+            }
+            case LIST: {
+                UUID userId = WireFormat.readUuid(in);
+                return out -> writeLinks(out, service.listLinksByUser(userId));
+            }
+            case DELETE: {
+                UUID userId = WireFormat.readUuid(in);
+                String shortUrl = WireFormat.readString(in);
+                return out -> out.writeBoolean(service.deleteLink(userId, shortUrl));
+            }
+            case NOTES: {
+                UUID userId = WireFormat.readUuid(in);
+                return out -> {
+                    List<String> notes = service.popNotifications(userId);
+                    out.writeInt(notes.size());
+                    for (String note : notes) WireFormat.writeString(out, note);
+                };
+            }
+            case CLEANUP:
+                return out -> out.writeInt(service.cleanupExpiredLinks());
+            case EXPORT: {
+                // No arcs means the whole ring.
+                List<ConsistentHashRing.Arc> arcs = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; i--) arcs.add(new ConsistentHashRing.Arc(in.readLong(), in.readLong()));
+                return out -> {
+                    List<LinkRecord> selected = new ArrayList<>();
+                    for (LinkRecord r : repo.findAllLinks()) {
+                        long h = ConsistentHashRing.hash(LinkRecord.codeOf(r.getShortUrl()));
+                        if (arcs.isEmpty() || arcs.stream().anyMatch(a -> a.contains(h))) selected.add(r);
+                    }
+                    writeLinks(out, selected);
+                };
+            }
+            case IMPORT: {
+                List<LinkRecord> links = readLinks(in);
+                return out -> {
+                    for (LinkRecord r : links) {
+                        repo.ensureUser(r.getOwnerId());
+                        repo.saveLink(r);
+                    }
+                    repo.save();
+                };
+            }
+            case REMOVE: {
+                List<String> shortUrls = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; i--) shortUrls.add(WireFormat.readString(in));
+                return out -> {
+                    for (String shortUrl : shortUrls) repo.deleteByShort(shortUrl);
+                    repo.save();
+                };
+            }
+            case NOTES_EXPORT:
+                // Pops every pending notification, for a shard that is leaving.
+                return out -> {
+                    Map<UUID, List<String>> notes = new LinkedHashMap<>();
+                    for (UUID userId : repo.findAllUsers()) {
+                        List<String> pending = repo.popNotifications(userId);
+                        if (!pending.isEmpty()) notes.put(userId, pending);
+                    }
+                    repo.save();
+                    writeNotes(out, notes);
+                };
+            case NOTES_IMPORT: {
+                Map<UUID, List<String>> notes = readNotes(in);
+                return out -> {
+                    notes.forEach((userId, pending) -> pending.forEach(note -> repo.pushNotification(userId, note)));
+                    repo.save();
+                };
+            }
+            default:
+                throw new IOException("Unknown shard request: " + op);
+        }
+    }
+
+    static void writeLinks(DataOutputStream out, List<LinkRecord> links) throws IOException {
+        out.writeInt(links.size());
+        for (LinkRecord r : links) WireFormat.writeLink(out, r);
+    }
+
+    static List<LinkRecord> readLinks(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        List<LinkRecord> links = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) links.add(WireFormat.readLink(in));
+        return links;
+    }
+
+    static void writeNotes(DataOutputStream out, Map<UUID, List<String>> notes) throws IOException {
+        out.writeInt(notes.size());
+        for (Map.Entry<UUID, List<String>> e : notes.entrySet()) {
+            WireFormat.writeUuid(out, e.getKey());
+            out.writeInt(e.getValue().size());
+            for (String note : e.getValue()) WireFormat.writeString(out, note);
+        }
+    }
+
+    static Map<UUID, List<String>> readNotes(DataInputStream in) throws IOException {
+        Map<UUID, List<String>> notes = new LinkedHashMap<>();
+        for (int n = in.readInt(); n > 0; n--) {
+            UUID userId = WireFormat.readUuid(in);
+            List<String> pending = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) pending.add(WireFormat.readString(in));
+            notes.put(userId, pending);
+        }
+        return notes;
+    }
+}
@@ -2,4 +2,11 @@ package org.example;
 
 public interface ShortCodeGenerator {
     String nextCode(int length);
+
+    /**
+     * True when the generator never returns the same code twice, so callers may skip existence checks.
+     */
+    default boolean isUnique() {
+        return false;
+    }
 }
@@ -0,0 +1,13 @@
+package org.example;
+
+public final class ShortCodeGenerators {
+    private ShortCodeGenerators() {}
+
+    public static ShortCodeGenerator open(ServiceSettings settings) {
+        return settings.getCodeLeaseFile()
+                .<ShortCodeGenerator>map(file -> new LeasedCodeGenerator(
+                        new CodeRangeLeases(file, settings.getCodeLeaseBlock(), settings.getCodeLeaseTtl()),
+                        settings.getNodeId(), settings.getCodeLeaseTtl().dividedBy(3)))
+                .orElseGet(Base62Generator::new);
+    }
+}
@@ -7,11 +7,18 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 
-public class ShortenerService {
+public class ShortenerService implements LinkShortener {
+    private static final int LOCK_STRIPES = 256;
 
     private final LinkRepository repo;
     private final ShortCodeGenerator generator;
     private final Clock clock;
+    private final ClickAnalytics analytics;
+    private final AdmissionControl admission;
+    // Per-code locks: a link's read-check-write sequences (create, click, delete, expiry) run under
+    // the lock of its short URL, re-reading the record inside, so they cannot interleave. Clicks another
+    // node decides (LinkRepository#clicksDecidedRemotely) are serialized there instead.
+    private final Object[] locks = new Object[LOCK_STRIPES];
 
     public interface Clock {
         Instant now();
@@ -26,107 +33,302 @@ public class ShortenerService {
     }
 
     public ShortenerService(LinkRepository repo, ShortCodeGenerator generator, Clock clock) {
+        this(repo, generator, clock, AdmissionControl.unlimited());
+    }
+
+    public ShortenerService(LinkRepository repo, ShortCodeGenerator generator, Clock clock, AdmissionControl admission) {
         this.repo = repo;
         this.generator = generator;
         this.clock = clock;
+        this.analytics = new ClickAnalytics(clock);
+        this.admission = admission;
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+    }
+
+    public ClickAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    public AdmissionControl getAdmission() {
+        return admission;
     }
 
+    @Override
     public LinkRecord createShortLink(UUID userId,
                                       String longUrl,
                                       Integer maxClicks,
                                       Duration ttl,
                                       int codeLen,
                                       String prefix) {
+        LinkOperationEvent event = new LinkOperationEvent("create");
+        event.begin();
+        try {
+            validate(userId, longUrl, ttl, prefix);
+            if (codeLen <= 0) throw new IllegalArgumentException("codeLen must be > 0");
+            admitCreate(userId);
+            long admitted = System.nanoTime();
+            try {
+                repo.ensureUser(userId);
+                /*
+                Optional<LinkRecord> searchResult = repo.findByLong(longUrl);
+                if(searchResult.isPresent())
+                    return searchResult.get();
+                */
+                LinkRecord record = null;
+                int attempts = 0;
+                while (record == null) {
+                    attempts++;
+                    String shortUrl = Paths.get(prefix, generator.nextCode(codeLen)).toString();
+                    if (generator.isUnique()) {
+                        record = store(userId, longUrl, shortUrl, maxClicks, ttl);
+                    } else {
+                        synchronized (lockFor(shortUrl)) {
+                            if (!repo.shortExists(shortUrl)) record = store(userId, longUrl, shortUrl, maxClicks, ttl);
+                        }
+                    }
+                }
+                repo.save();
+                event.retries = attempts - 1;
+                event.status = "OK";
+                return record;
+            } finally {
+                admission.exit(admitted);
+            }
+        } catch (AdmissionRejectedException e) {
+            event.status = ResolveStatus.REJECTED.name();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.codeLength = codeLen;
+                event.owner = String.valueOf(userId);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Creates a link with a code chosen by the caller, empty if the code is already taken.
+     */
+    public Optional<LinkRecord> createShortLinkWithCode(UUID userId,
+                                                        String longUrl,
+                                                        Integer maxClicks,
+                                                        Duration ttl,
+                                                        String code,
+                                                        String prefix) {
+        Objects.requireNonNull(code, "code");
+        validate(userId, longUrl, ttl, prefix);
+        admitCreate(userId);
+        long admitted = System.nanoTime();
+        try {
+            repo.ensureUser(userId);
+            String shortUrl = Paths.get(prefix, code).toString();
+            LinkRecord record;
+            synchronized (lockFor(shortUrl)) {
+                if (repo.shortExists(shortUrl)) return Optional.empty();
+                record = store(userId, longUrl, shortUrl, maxClicks, ttl);
+            }
+            repo.save();
+            return Optional.of(record);
+        } finally {
+            admission.exit(admitted);
+        }
+    }
+
+    // Concurrency first, so a request shed for overload does not use up the owner's rate.
+    private void admitCreate(UUID userId) {
+        if (!admission.tryEnter())
+            throw new AdmissionRejectedException("Service is overloaded, try again later");
+        if (!admission.allowCreate(userId)) {
+            admission.cancel();
+            throw new AdmissionRejectedException("Too many links created, try again later");
+        }
+    }
+
+    private boolean admitResolve(String clientId) {
+        if (admission.allowResolve(clientId)) return true;
+        admission.cancel();
+        return false;
+    }
+
+    private static void validate(UUID userId, String longUrl, Duration ttl, String prefix) {
         Objects.requireNonNull(userId, "userId");
         Objects.requireNonNull(longUrl, "longUrl");
         Objects.requireNonNull(ttl, "ttl");
         Objects.requireNonNull(prefix, "prefix");
-        if (codeLen <= 0) throw new IllegalArgumentException("codeLen must be > 0");
         try{
             URI.create(longUrl).toURL();
         }catch (MalformedURLException e){
             throw new IllegalArgumentException("invalid URL");
         }
+    }
 
-        repo.ensureUser(userId);
-        /*
-        Optional<LinkRecord> searchResult = repo.findByLong(longUrl);
-        if(searchResult.isPresent())
-            return searchResult.get();
-        */
-        String shortUrl;
-        do {
-            String code = generator.nextCode(codeLen);
-            shortUrl = Paths.get(prefix, code).toString();
-        } while (repo.shortExists(shortUrl));
-
+    private LinkRecord store(UUID userId, String longUrl, String shortUrl, Integer maxClicks, Duration ttl) {
         Instant now = clock.now();
         Instant exp = now.plus(ttl);
 
         LinkRecord record = new LinkRecord(userId, longUrl, shortUrl, now, exp, (maxClicks != null && maxClicks > 0) ? maxClicks : null);
         repo.saveLink(record);
-        repo.save();
         return record;
     }
 
+    @Override
     public ResolveResult resolveAndRegisterClick(String shortUrl) {
+        return resolveAndRegisterClick(shortUrl, null);
+    }
+
+    /**
+     * @param clientId caller identity for per-client rate limiting, null when unknown
+     */
+    @Override
+    public ResolveResult resolveAndRegisterClick(String shortUrl, String clientId) {
         Objects.requireNonNull(shortUrl, "shortUrl");
-        Optional<LinkRecord> opt = repo.findByShort(shortUrl);
-        if (opt.isEmpty()) return ResolveResult.nf();
+        LinkOperationEvent event = new LinkOperationEvent("resolve");
+        event.begin();
+        try {
+            ResolveResult result = ResolveResult.rejected();
+            if (admission.tryEnter() && admitResolve(clientId)) {
+                long admitted = System.nanoTime();
+                try {
+                    result = resolve(shortUrl, event);
+                    // outside the lock, as in deleteLink: clicks on other links need not wait for the disk
+                    if (result.getStatus() != ResolveStatus.NOT_FOUND) repo.save();
+                } finally {
+                    admission.exit(admitted);
+                }
+            }
+            event.status = result.getStatus().name();
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.codeLength = LinkRecord.codeOf(shortUrl).length();
+                event.commit();
+            }
+        }
+    }
 
-        LinkRecord r = opt.get();
-        Instant now = clock.now();
+    private ResolveResult resolve(String shortUrl, LinkOperationEvent event) {
+        LinkRecord r;
+        Instant now;
+        synchronized (lockFor(shortUrl)) {
+            Optional<LinkRecord> opt = repo.findByShort(shortUrl);
+            if (opt.isEmpty()) return ResolveResult.nf();
 
-        if (r.isExpired(now)) {
-            repo.deleteByShort(shortUrl);
-            repo.pushNotification(r.getOwnerId(), now + " — Link expired and was removed: " + shortUrl);
-            repo.save();
-            return ResolveResult.expired();
+            r = opt.get();
+            if (event.isEnabled()) event.owner = r.getOwnerId().toString();
+            now = clock.now();
+
+            if (r.isExpired(now)) {
+                repo.deleteByShort(shortUrl);
+                analytics.forget(shortUrl);
+                notifyOwner(r.getOwnerId(), "expired", now + " — Link expired and was removed: " + shortUrl);
+                return ResolveResult.expired();
+            }
+            if (!repo.clicksDecidedRemotely(r)) return click(r, now);
+        }
+        // The deciding node serializes these clicks itself; waiting for it must not hold up the lock stripe.
+        try {
+            return click(r, now);
+        } catch (LeaderUnavailableException e) {
+            return ResolveResult.rejected();
         }
+    }
 
-        if (r.isBlockedByLimit()) {
-            repo.pushNotification(r.getOwnerId(), now + " — Click limit was reached for: " + shortUrl + " (blocked)");
+    private ResolveResult click(LinkRecord r, Instant now) {
+        String shortUrl = r.getShortUrl();
+        if (!repo.registerClick(r)) {
+            notifyOwner(r.getOwnerId(), "limit", now + " — Click limit was reached for: " + shortUrl + " (blocked)");
             return ResolveResult.limit();
         }
-        r.registerClick();
+        analytics.record(shortUrl, now);
         if (r.isBlockedByLimit())
-            repo.pushNotification(r.getOwnerId(), now + " — Click limit reached for: " + shortUrl + " (blocked)");
+            notifyOwner(r.getOwnerId(), "limit", now + " — Click limit reached for: " + shortUrl + " (blocked)");
 
-        repo.save();
         return ResolveResult.ok(r.getLongUrl());
     }
 
+    @Override
     public List<LinkRecord> listLinksByUser(UUID userId) {
         Objects.requireNonNull(userId, "userId");
         return repo.findByOwner(userId);
     }
 
+    @Override
     public boolean deleteLink(UUID userId, String shortUrl) {
         Objects.requireNonNull(userId, "userId");
         Objects.requireNonNull(shortUrl, "shortUrl");
-        Optional<LinkRecord> opt = repo.findByShort(shortUrl);
-        if (opt.isEmpty()) return false;
-        if (!opt.get().getOwnerId().equals(userId)) return false;
-        repo.deleteByShort(shortUrl);
-        repo.save();
-        return true;
+        LinkOperationEvent event = new LinkOperationEvent("delete");
+        event.begin();
+        try {
+            synchronized (lockFor(shortUrl)) {
+                Optional<LinkRecord> opt = repo.findByShort(shortUrl);
+                if (opt.isEmpty()) {
+                    event.status = ResolveStatus.NOT_FOUND.name();
+                    return false;
+                }
+                if (!opt.get().getOwnerId().equals(userId)) {
+                    event.status = "NOT_OWNER";
+                    return false;
+                }
+                repo.deleteByShort(shortUrl);
+                analytics.forget(shortUrl);
+            }
+            repo.save();
+            event.status = "OK";
+            return true;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.codeLength = LinkRecord.codeOf(shortUrl).length();
+                event.owner = userId.toString();
+                event.commit();
+            }
+        }
     }
+    @Override
     public int cleanupExpiredLinks() {
+        ExpirySweepEvent event = new ExpirySweepEvent();
+        event.begin();
         Instant now = clock.now();
         List<LinkRecord> all = repo.findAllLinks();
         int removed = 0;
         for (LinkRecord r : all) {
-            if (r.isExpired(now)) {
+            if (!r.isExpired(now)) continue;
+            synchronized (lockFor(r.getShortUrl())) {
+                // a concurrent resolve may have removed it already, and the code may since have been reused
+                Optional<LinkRecord> current = repo.findByShort(r.getShortUrl());
+                if (current.isEmpty() || !current.get().isExpired(now)) continue;
                 repo.deleteByShort(r.getShortUrl());
-                repo.pushNotification(r.getOwnerId(), now + " — Link expired and was auto-removed: " + r.getShortUrl());
+                analytics.forget(r.getShortUrl());
+                notifyOwner(current.get().getOwnerId(), "expired", now + " — Link expired and was auto-removed: " + r.getShortUrl());
                 removed++;
             }
         }
         if (removed > 0) repo.save();
+        event.scanned = all.size();
+        event.removed = removed;
+        event.commit();
         return removed;
     }
 
+    @Override
     public List<String> popNotifications(UUID userId) {
         return repo.popNotifications(userId);
     }
+
+    private Object lockFor(String shortUrl) {
+        return locks[(shortUrl.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private void notifyOwner(UUID ownerId, String kind, String message) {
+        NotificationEvent event = new NotificationEvent(kind);
+        event.begin();
+        repo.pushNotification(ownerId, message);
+        event.end();
+        if (event.shouldCommit()) {
+            event.owner = ownerId.toString();
+            event.commit();
+        }
+    }
 }
\ No newline at end of file
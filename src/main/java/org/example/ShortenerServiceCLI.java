@@ -3,18 +3,22 @@ package org.example;
 import org.apache.commons.cli.*;
 
 import java.awt.*;
-import java.io.Reader;
-import java.io.StringReader;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 enum TokenType {
     STRING,
@@ -134,6 +138,14 @@ final class HelpCommand extends Command {
     HelpCommand(String command) {super(command);}
 }
 
+final class TopCommand extends Command {
+    TopCommand(String command) {super(command);}
+}
+
+final class StatsCommand extends LinkCommand {
+    StatsCommand(String link) {super(link);}
+}
+
 final class ShortenCommand extends LinkCommand {
     ShortenCommand(String link) {super(link);}
 }
@@ -159,6 +171,8 @@ class Parser {
             case "l", "list" -> new ListCommand(lex.current().getValue());
             case "s", "shorten" -> parseShortenCommand(lex);
             case "g", "go" -> parseGoCommand(lex);
+            case "st", "stats" -> parseStatsCommand(lex);
+            case "t", "top" -> new TopCommand(lex.current().getValue());
             case "h", "help" -> new HelpCommand(lex.current().getValue());
             case "q", "quit" -> new QuitCommand(lex.current().getValue());
             default -> new UnknownCommand(lex.current().getValue());
@@ -184,6 +198,12 @@ class Parser {
         return new GoCommand(lex.current().getValue());
     }
 
+    static private StatsCommand parseStatsCommand(Lexer lex){
+        lex.next();
+        Parser.expect(lex, TokenType.STRING);
+        return new StatsCommand(lex.current().getValue());
+    }
+
     static void expect(Lexer lex, TokenType expected) {
         if(lex.current().getType() != expected)
             throw new Error("Lexer Error: Expected " + expected + " but got " + lex.current().getType());
@@ -194,6 +214,8 @@ class Parser {
                 "\tl, list - list available user links\n" +
                 "\ts, shorten - shorten link\n" +
                 "\tg, go - go to link\n" +
+                "\tst, stats - click statistics of a link or code\n" +
+                "\tt, top - most clicked links\n" +
                 "\th, help - list available commands\n";
     }
 }
@@ -206,6 +228,30 @@ public class ShortenerServiceCLI{
         user_opt.setRequired(false);
         options.addOption(user_opt);
 
+        Option serve_opt = new Option(null, "serve-shard", true, "serve the local repository as a shard on the given port");
+        serve_opt.setRequired(false);
+        options.addOption(serve_opt);
+
+        Option shards_opt = new Option(null, "shards", true, "comma separated host:port list of shards to route to");
+        shards_opt.setRequired(false);
+        options.addOption(shards_opt);
+
+        Option join_opt = new Option(null, "join-shard", true, "with --shards, add the shard at host:port and move its links to it");
+        join_opt.setRequired(false);
+        options.addOption(join_opt);
+
+        Option leave_opt = new Option(null, "leave-shard", true, "with --shards, remove the shard at host:port after moving its links away");
+        leave_opt.setRequired(false);
+        options.addOption(leave_opt);
+
+        Option batch_opt = new Option(null, "batch", true, "run commands from a file, or from stdin with -, without prompts");
+        batch_opt.setRequired(false);
+        options.addOption(batch_opt);
+
+        Option flush_opt = new Option(null, "flush-every", true, "in batch mode, also persist the repository every N commands instead of only at the end");
+        flush_opt.setRequired(false);
+        options.addOption(flush_opt);
+
         CommandLine cmd = null;
         try {
             cmd = new DefaultParser().parse(options, args);
@@ -218,8 +264,47 @@ public class ShortenerServiceCLI{
         String user = Optional.ofNullable(cmd.getOptionValue("user")).orElse(System.getenv("USER"));
         UUID uid = UUID.nameUUIDFromBytes(user.getBytes());
 
-        FileLinkRepository repo = new FileLinkRepository(Paths.get(settings.getRepositoryPath(), "repo").toString());
-        ShortenerService svc = new ShortenerService(repo, new Base62Generator());
+        ShortCodeGenerator generator = ShortCodeGenerators.open(settings);
+        LinkRepository repo = null;
+        LinkShortener svc;
+        ClickAnalytics analytics = null;
+        if (cmd.hasOption("shards")) {
+            List<ShardClient> shards = Arrays.stream(cmd.getOptionValue("shards").split(","))
+                    .map(String::trim).map(ShardClient::of).toList();
+            ShardRouter router = new ShardRouter(shards, settings.getShardVirtualNodes(), generator);
+            if (cmd.hasOption("join-shard") || cmd.hasOption("leave-shard")) {
+                if (cmd.hasOption("join-shard")) router.addShard(ShardClient.of(cmd.getOptionValue("join-shard").trim()));
+                if (cmd.hasOption("leave-shard")) router.removeShard(cmd.getOptionValue("leave-shard").trim());
+                System.out.println("Shards: " + router.getShards().stream().map(ShardClient::getAddress).collect(Collectors.joining(",")));
+                close(router, generator);
+                return;
+            }
+            svc = router;
+        } else if (cmd.hasOption("join-shard") || cmd.hasOption("leave-shard")) {
+            System.out.println("--join-shard and --leave-shard need --shards");
+            return;
+        } else {
+            repo = LinkRepositories.open(settings);
+            if (cmd.hasOption("batch")) repo = new CoalescingLinkRepository(repo);
+            // batch jobs are local operator runs and are not throttled
+            AdmissionControl admission = cmd.hasOption("batch") ? AdmissionControl.unlimited() : AdmissionControl.from(settings);
+            ShortenerService local = new ShortenerService(repo, generator, new ShortenerService.SystemClock(), admission);
+            analytics = local.getAnalytics().start();
+            analytics.registerMBean();
+            admission.registerMBean();
+            if (cmd.hasOption("serve-shard")) {
+                ShardServer server = new ShardServer(local, repo, Integer.parseInt(cmd.getOptionValue("serve-shard"))).start();
+                System.out.println("Serving shard on port " + server.getPort());
+                return;
+            }
+            svc = local;
+        }
+        if (cmd.hasOption("batch")) {
+            int flushEvery = Integer.parseInt(Optional.ofNullable(cmd.getOptionValue("flush-every")).orElse("0"));
+            runBatch(settings, svc, repo, uid, cmd.getOptionValue("batch"), flushEvery);
+            close(svc, analytics, generator, repo);
+            return;
+        }
         boolean running = true;
         Scanner scanner = new Scanner(System.in);
         while(running){
@@ -238,13 +323,16 @@ public class ShortenerServiceCLI{
                         System.out.println("Shortened link: " + link.getShortUrl());
                         break;
                     case GoCommand command:
-                        ResolveResult result = svc.resolveAndRegisterClick(command.link);
+                        ResolveResult result = svc.resolveAndRegisterClick(command.link, user);
                         switch (result.getStatus()) {
                             case EXPIRED:
                             case NOT_FOUND:
                             case LIMIT_REACHED:
                                 System.out.println(String.join("\n", svc.popNotifications(uid)));
                                 break;
+                            case REJECTED:
+                                System.out.println("Too many requests, try again later");
+                                break;
                             case OK:
                                 List<String> notifications = svc.popNotifications(uid);
                                 if(!notifications.isEmpty())
@@ -254,6 +342,12 @@ public class ShortenerServiceCLI{
                                 break;
                         }
                         break;
+                    case StatsCommand command:
+                        System.out.println(formatStats(svc, settings, command.link));
+                        break;
+                    case TopCommand command:
+                        System.out.println(formatTop(svc));
+                        break;
                     case HelpCommand command:
                         System.out.println(Parser.helpString());
                         break;
@@ -269,5 +363,125 @@ public class ShortenerServiceCLI{
                 System.out.println(e.getMessage());
             }
         }
+        close(svc, analytics, generator, repo);
+    }
+
+    /**
+     * Streams commands without prompts, writing results to one buffered writer. Repository saves
+     * requested by the service are coalesced and persisted at the end, and every {@code flushEvery}
+     * commands when it is positive.
+     */
+    private static void runBatch(ServiceSettings settings, LinkShortener svc, LinkRepository repo, UUID uid,
+                                 String source, int flushEvery) {
+        CoalescingLinkRepository coalescing = repo instanceof CoalescingLinkRepository c ? c : null;
+        try (Reader in = source.equals("-")
+                    ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                    : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8);
+             CommandReader commands = new CommandReader(in)) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            long executed = 0;
+            while (commands.next()) {
+                try {
+                    if (commands.commandIs("s", "shorten")) {
+                        LinkRecord link = svc.createShortLink(uid, requireArgument(commands), settings.getMaxClics(),
+                                                              settings.getTtl(), settings.getCodeLength(),
+                                                              settings.getServiceAddress());
+                        out.write(link.getShortUrl());
+                        out.write('\n');
+                    } else if (commands.commandIs("g", "go")) {
+                        ResolveResult result = svc.resolveAndRegisterClick(requireArgument(commands), uid.toString());
+                        out.write(result.getStatus() == ResolveStatus.OK ? result.getLongUrl() : result.getStatus().name());
+                        out.write('\n');
+                    } else if (commands.commandIs("l", "list")) {
+                        for (LinkRecord link : svc.listLinksByUser(uid)) {
+                            out.write(link.getShortUrl());
+                            out.write('\n');
+                        }
+                    } else if (commands.commandIs("st", "stats")) {
+                        out.write(formatStats(svc, settings, requireArgument(commands)));
+                        out.write('\n');
+                    } else if (commands.commandIs("t", "top")) {
+                        out.write(formatTop(svc));
+                        out.write('\n');
+                    } else if (commands.commandIs("h", "help")) {
+                        out.write(Parser.helpString());
+                    } else if (commands.commandIs("q", "quit")) {
+                        break;
+                    } else {
+                        throw new IllegalStateException("Unknown command: " + commands.command());
+                    }
+                } catch (RuntimeException e) {
+                    out.write("line " + commands.lineNumber() + ": " + e.getMessage() + "\n");
+                }
+                if (++executed == flushEvery) {
+                    executed = 0;
+                    if (coalescing != null) coalescing.flush();
+                    out.flush();
+                }
+            }
+            if (coalescing != null) coalescing.flush();
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Failed to run batch: " + e.getMessage());
+        }
+    }
+
+    private static String formatStats(LinkShortener svc, ServiceSettings settings, String link) {
+        ClickAnalytics analytics = analyticsOf(svc);
+        String shortUrl = link.contains("/") ? link : Paths.get(settings.getServiceAddress(), link).toString();
+        ClickStats stats = analytics.stats(shortUrl)
+                .orElseThrow(() -> new IllegalArgumentException("No clicks recorded for " + shortUrl));
+        long now = analytics.currentMinute();
+        long[] minutes = stats.lastMinutes(now, ClickStats.MINUTES);
+        long[] hours = stats.lastHours(now, ClickStats.HOURS);
+        long[] days = stats.lastDays(now, ClickStats.DAYS);
+        return shortUrl + ": " + stats.total() + " clicks, " + Arrays.stream(minutes).sum() + " in the last hour, "
+                + Arrays.stream(hours).sum() + " in the last day\n"
+                + "minutes (newest first): " + join(minutes, 15) + "\n"
+                + "hours   (newest first): " + join(hours, 24) + "\n"
+                + "days    (newest first): " + join(days, 7);
+    }
+
+    private static String formatTop(LinkShortener svc) {
+        List<Map.Entry<String, Long>> top = analyticsOf(svc).top(10);
+        if (top.isEmpty()) return "No completed minutes of clicks yet";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < top.size(); i++) {
+            if (i > 0) sb.append('\n');
+            sb.append(i + 1).append(". ").append(top.get(i).getKey()).append(" ~").append(top.get(i).getValue());
+        }
+        return sb.toString();
+    }
+
+    private static ClickAnalytics analyticsOf(LinkShortener svc) {
+        if (svc instanceof ShortenerService local) return local.getAnalytics();
+        throw new IllegalStateException("Click analytics are kept by each shard and are not available through the router");
+    }
+
+    private static String join(long[] counts, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(n, counts.length); i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(counts[i]);
+        }
+        return sb.toString();
+    }
+
+    private static String requireArgument(CommandReader commands) {
+        String arg = commands.argument();
+        if (arg == null) throw new IllegalArgumentException("Expected an argument for " + commands.command());
+        return arg;
+    }
+
+    private static void close(Object... resources) {
+        for (Object resource : resources) {
+            if (resource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        }
     }
 }
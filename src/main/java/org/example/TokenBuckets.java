@@ -0,0 +1,63 @@
+package org.example;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token buckets, one per key.
+ *
+ * Each bucket is a single "theoretical arrival time" (GCRA): a request is admitted when, after adding
+ * one emission interval to that time, it is no further than {@code burst} intervals ahead of now. This
+ * behaves like a bucket of {@code burst} tokens refilled at {@code rate} per second and takes one CAS.
+ * Buckets that have refilled completely hold no state worth keeping and are dropped once more than
+ * {@code maxKeys} keys are tracked.
+ */
+public class TokenBuckets<K> {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile long lastSweep = System.nanoTime();
+
+    public TokenBuckets(double ratePerSecond, int burst, int maxKeys) {
+        if (ratePerSecond <= 0) throw new IllegalArgumentException("rate must be > 0");
+        this.intervalNanos = Math.max(1, (long) (1e9 / ratePerSecond));
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.maxKeys = maxKeys;
+    }
+
+    public boolean tryAcquire(K key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    public boolean tryAcquire(K key, long nowNanos) {
+        AtomicLong tat = buckets.get(key);
+        if (tat == null) {
+            if (buckets.size() >= maxKeys) sweep(nowNanos);
+            tat = buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+        while (true) {
+            long t = tat.get();
+            long next = Math.max(t, nowNanos) + intervalNanos;
+            if (next - nowNanos > burstNanos) return false;
+            if (tat.compareAndSet(t, next)) return true;
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    // At most once per burst window; until then keys over the cap are simply tracked.
+    private void sweep(long nowNanos) {
+        if (nowNanos - lastSweep < burstNanos || !sweeping.compareAndSet(false, true)) return;
+        try {
+            buckets.values().removeIf(tat -> tat.get() <= nowNanos);
+            lastSweep = nowNanos;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
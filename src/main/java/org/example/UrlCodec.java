@@ -0,0 +1,138 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact form of long URLs.
+ *
+ * A URL is split into scheme+authority, interned so every link to the same host shares one String,
+ * and the remaining path/query, stored as UTF-8 where frequent fragments (tracking parameters, common
+ * path segments) are replaced by a one-byte token. Tokens are bytes 0x01..0x1F, which never occur in
+ * a valid URL; a raw byte in 0x00..0x1F is escaped with a 0x00 prefix.
+ *
+ * Hosts are interned through a small direct-mapped cache: a host evicts whatever shared its slot, so
+ * memory stays bounded however many distinct hosts pass through, while hosts in steady use stay shared.
+ */
+final class UrlCodec {
+    // Persisted as token numbers 1..31: never reorder or remove entries. All 31 token bytes are in use,
+    // so the dictionary cannot grow without a new escape scheme.
+    private static final String[] DICTIONARY = {
+            "?utm_source=", "&utm_medium=", "&utm_campaign=", "&utm_content=", "&utm_term=", "utm_",
+            "/watch?v=", "/search?q=", "/products/", "/product/", "/articles/", "/article/",
+            "/category/", "/catalog/", "/index.html", ".html", ".php", "/blog/", "/news/", "/wiki/",
+            "/item/", "/user/", "/images/", "https%3A%2F%2F", "&ref=", "?ref=", "fbclid=", "gclid=",
+            "yclid=", "?id=", "&id="
+    };
+    private static final byte ESCAPE = 0;
+    private static final byte[][] ENTRIES = new byte[DICTIONARY.length][];
+    // Token indexes by first byte, longest entry first.
+    private static final int[][] BY_FIRST_BYTE = new int[128][];
+    private static final int HOST_SLOTS = 4096;
+    private static final String[] HOSTS = new String[HOST_SLOTS];
+
+    static {
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int i = 0; i < 128; i++) buckets.add(new ArrayList<>());
+        for (int i = 0; i < DICTIONARY.length; i++) {
+            ENTRIES[i] = DICTIONARY[i].getBytes(StandardCharsets.US_ASCII);
+            buckets.get(ENTRIES[i][0]).add(i);
+        }
+        for (int b = 0; b < 128; b++) {
+            BY_FIRST_BYTE[b] = buckets.get(b).stream()
+                    .sorted((x, y) -> ENTRIES[y].length - ENTRIES[x].length)
+                    .mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * A URL split into scheme+authority and encoded remainder.
+     */
+    record Encoded(String host, byte[] tail) {
+        int hash() {
+            return 31 * host.hashCode() + Arrays.hashCode(tail);
+        }
+    }
+
+    private UrlCodec() {}
+
+    static Encoded encode(String url) {
+        int hostLength = hostLength(url);
+        return new Encoded(url.substring(0, hostLength), encodeTail(url.substring(hostLength)));
+    }
+
+    /**
+     * Shared instance of a scheme+authority string, as long as the host stays in the cache.
+     */
+    static String internHost(String host) {
+        // Unsynchronized: a lost race only means two equal hosts are not shared.
+        int slot = host.hashCode() & (HOST_SLOTS - 1);
+        String cached = HOSTS[slot];
+        if (host.equals(cached)) return cached;
+        HOSTS[slot] = host;
+        return host;
+    }
+
+    /**
+     * Length of the scheme+authority part, 0 when the URL has none.
+     */
+    static int hostLength(String url) {
+        int scheme = url.indexOf("://");
+        if (scheme < 0) return 0;
+        for (int i = scheme + 3; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') return i;
+        }
+        return url.length();
+    }
+
+    static byte[] encodeTail(String tail) {
+        byte[] src = tail.getBytes(StandardCharsets.UTF_8);
+        byte[] buf = new byte[src.length * 2];
+        int n = 0;
+        for (int i = 0; i < src.length; ) {
+            int token = longestMatch(src, i);
+            if (token >= 0) {
+                buf[n++] = (byte) (token + 1);
+                i += ENTRIES[token].length;
+                continue;
+            }
+            byte b = src[i++];
+            if (b >= 0 && b <= DICTIONARY.length) buf[n++] = ESCAPE;
+            buf[n++] = b;
+        }
+        return Arrays.copyOf(buf, n);
+    }
+
+    static String decode(String host, byte[] tail) {
+        byte[] out = new byte[tail.length * 2 + 16];
+        int n = 0;
+        for (int i = 0; i < tail.length; i++) {
+            byte b = tail[i];
+            byte[] chunk = null;
+            if (b == ESCAPE) b = tail[++i];
+            else if (b > 0 && b <= DICTIONARY.length) chunk = ENTRIES[b - 1];
+            int need = n + (chunk == null ? 1 : chunk.length);
+            if (need > out.length) out = Arrays.copyOf(out, Math.max(need, out.length * 2));
+            if (chunk == null) {
+                out[n++] = b;
+            } else {
+                System.arraycopy(chunk, 0, out, n, chunk.length);
+                n += chunk.length;
+            }
+        }
+        return host + new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private static int longestMatch(byte[] src, int at) {
+        int first = src[at];
+        if (first < 0) return -1;
+        for (int token : BY_FIRST_BYTE[first]) {
+            byte[] e = ENTRIES[token];
+            if (at + e.length <= src.length && Arrays.equals(src, at, at + e.length, e, 0, e.length)) return token;
+        }
+        return -1;
+    }
+}
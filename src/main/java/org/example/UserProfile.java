@@ -1,4 +1,6 @@
 package org.example;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayDeque;
@@ -19,13 +21,19 @@ public class UserProfile implements Serializable {
 
     public UUID getUserId() { return userId; }
 
-    public void pushNotification(String msg) {
+    public synchronized void pushNotification(String msg) {
         notifications.addLast(msg);
     }
 
-    public List<String> popAllNotifications() {
+    public synchronized List<String> popAllNotifications() {
         List<String> out = new ArrayList<>();
         while (!notifications.isEmpty()) out.add(notifications.removeFirst());
         return out;
     }
+
+    // Snapshots may be written while notifications are pushed.
+    @Serial
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
 }
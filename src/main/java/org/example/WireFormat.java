@@ -0,0 +1,103 @@
+package org.example;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Binary encoding of link records shared by the network protocols.
+ */
+final class WireFormat {
+    // Resolve outcomes; fixed codes so that reordering ResolveStatus cannot change the protocol.
+    static final byte RESOLVED = 0;
+    static final byte NOT_FOUND = 1;
+    static final byte EXPIRED = 2;
+    static final byte LIMIT_REACHED = 3;
+    static final byte REJECTED = 4;
+
+    private WireFormat() {}
+
+    static void writeStatus(DataOutput out, ResolveStatus status) throws IOException {
+        out.writeByte(switch (status) {
+            case OK -> RESOLVED;
+            case NOT_FOUND -> NOT_FOUND;
+            case EXPIRED -> EXPIRED;
+            case LIMIT_REACHED -> LIMIT_REACHED;
+            case REJECTED -> REJECTED;
+        });
+    }
+
+    static ResolveStatus readStatus(DataInput in) throws IOException {
+        byte code = in.readByte();
+        return switch (code) {
+            case RESOLVED -> ResolveStatus.OK;
+            case NOT_FOUND -> ResolveStatus.NOT_FOUND;
+            case EXPIRED -> ResolveStatus.EXPIRED;
+            case LIMIT_REACHED -> ResolveStatus.LIMIT_REACHED;
+            case REJECTED -> ResolveStatus.REJECTED;
+            default -> throw new IOException("Unknown resolve status: " + code);
+        };
+    }
+
+    static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeUuid(DataOutput out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    static UUID readUuid(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    static void writeInstant(DataOutput out, Instant instant) throws IOException {
+        out.writeLong(instant.getEpochSecond());
+        out.writeInt(instant.getNano());
+    }
+
+    static Instant readInstant(DataInput in) throws IOException {
+        return Instant.ofEpochSecond(in.readLong(), in.readInt());
+    }
+
+    static void writeLink(DataOutput out, LinkRecord r) throws IOException {
+        writeString(out, r.getShortUrl());
+        writeUuid(out, r.getOwnerId());
+        UrlCodec.Encoded url = r.getEncodedUrl();
+        writeString(out, url.host());
+        out.writeInt(url.tail().length);
+        out.write(url.tail());
+        writeInstant(out, r.getCreatedAt());
+        writeInstant(out, r.getExpiresAt());
+        out.writeInt(r.getMaxClicks() == null ? -1 : r.getMaxClicks());
+        out.writeInt(r.getClicks());
+        out.writeBoolean(r.isBlockedByLimit());
+    }
+
+    static LinkRecord readLink(DataInput in) throws IOException {
+        String shortUrl = readString(in);
+        UUID owner = readUuid(in);
+        String host = readString(in);
+        byte[] tail = new byte[in.readInt()];
+        in.readFully(tail);
+        Instant createdAt = readInstant(in);
+        Instant expiresAt = readInstant(in);
+        int maxClicks = in.readInt();
+        int clicks = in.readInt();
+        boolean blocked = in.readBoolean();
+        return LinkRecord.encoded(owner, new UrlCodec.Encoded(host, tail), shortUrl, createdAt, expiresAt,
+                maxClicks < 0 ? null : maxClicks, clicks, blocked);
+    }
+}
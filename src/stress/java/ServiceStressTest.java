@@ -0,0 +1,296 @@
+import org.example.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs create, resolve, delete and cleanup from many threads at once against the service over every
+ * repository, then checks invariants that any serial order of the same calls would keep.
+ * Thread count comes from {@code -Dstress.threads} ({@code gradle stressTest -Pthreads=N}).
+ */
+public class ServiceStressTest {
+    private static final int THREADS = Math.max(4, Integer.getInteger("stress.threads", 8));
+    private static final String PREFIX = "clck.local/";
+
+    record Repo(String name, Supplier<LinkRepository> factory) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static class ManualClock implements ShortenerService.Clock {
+        private final AtomicLong millis = new AtomicLong(Instant.parse("2026-01-01T00:00:00Z").toEpochMilli());
+        @Override public Instant now() { return Instant.ofEpochMilli(millis.get()); }
+        void advance(long ms) { millis.addAndGet(ms); }
+    }
+
+    private final List<LinkRepository> opened = new ArrayList<>();
+
+    static Stream<Repo> repositories() {
+        // ReplicaLinkRepository is read-only and is covered by ReplicationTest instead.
+        return Stream.of(
+                new Repo("memory", InMemoryLinkRepository::new),
+                new Repo("file", () -> new FileLinkRepository(tempDir().resolve("repo").toString())),
+                new Repo("jdbc", () -> new JdbcLinkRepository("jdbc:h2:file:" + tempDir().resolve("repo-h2"))),
+                new Repo("coalescing", () -> new CoalescingLinkRepository(new FileLinkRepository(tempDir().resolve("repo").toString()))),
+                new Repo("replication-leader", () -> new ReplicationLeader(new InMemoryLinkRepository(), 0, Duration.ofMillis(200))));
+    }
+
+    @AfterEach
+    void closeRepositories() throws Exception {
+        for (LinkRepository repo : opened) {
+            if (repo instanceof AutoCloseable closeable) closeable.close();
+        }
+        opened.clear();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void concurrentCreatesNeverShareACode(Repo r) throws Exception {
+        LinkRepository repo = open(r);
+        ShortenerService svc = new ShortenerService(repo, new Base62Generator());
+        // two-character codes: 3844 in total, so creates keep colliding
+        int perThread = 2_400 / THREADS;
+        ConcurrentHashMap<String, String> issued = new ConcurrentHashMap<>();
+        LongAdder duplicates = new LongAdder();
+
+        hammer(THREADS, t -> {
+            UUID owner = new UUID(0, t);
+            for (int i = 0; i < perThread; i++) {
+                LinkRecord link = svc.createShortLink(owner, "https://example.com/" + t + "/" + i, null, Duration.ofHours(1), 2, PREFIX);
+                if (issued.putIfAbsent(link.getShortUrl(), link.getLongUrl()) != null) duplicates.increment();
+            }
+        });
+
+        assertEquals(0, duplicates.sum(), "codes handed out twice");
+        assertEquals(perThread * THREADS, issued.size());
+        assertEquals(issued.size(), repo.findAllLinks().size());
+        issued.forEach((shortUrl, longUrl) ->
+                assertEquals(longUrl, repo.findByShort(shortUrl).orElseThrow().getLongUrl(), "overwritten: " + shortUrl));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void clickLimitsAreExact(Repo r) throws Exception {
+        LinkRepository repo = open(r);
+        ShortenerService svc = new ShortenerService(repo, new Base62Generator());
+        UUID owner = UUID.randomUUID();
+        int links = 16, maxClicks = 40;
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < links; i++) {
+            codes.add(svc.createShortLink(owner, "https://example.com/" + i, maxClicks, Duration.ofHours(1), 7, PREFIX).getShortUrl());
+        }
+        int perThread = links * maxClicks * 2 / THREADS;
+        AtomicInteger[] ok = new AtomicInteger[links];
+        for (int i = 0; i < links; i++) ok[i] = new AtomicInteger();
+        LongAdder limited = new LongAdder();
+
+        hammer(THREADS, t -> {
+            for (int i = 0; i < perThread; i++) {
+                int link = (t + i) % links;
+                switch (svc.resolveAndRegisterClick(codes.get(link)).getStatus()) {
+                    case OK -> ok[link].incrementAndGet();
+                    case LIMIT_REACHED -> limited.increment();
+                    default -> fail("unexpected status");
+                }
+            }
+        });
+
+        for (int i = 0; i < links; i++) {
+            assertEquals(maxClicks, ok[i].get(), "successful clicks on " + codes.get(i));
+            LinkRecord stored = repo.findByShort(codes.get(i)).orElseThrow();
+            assertEquals(maxClicks, stored.getClicks());
+            assertTrue(stored.isBlockedByLimit());
+        }
+        // one notice when each link reaches its limit, one per blocked click
+        assertEquals(limited.sum() + links, svc.popNotifications(owner).size());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void expiredAndDeletedLinksStayGone(Repo r) throws Exception {
+        LinkRepository repo = open(r);
+        ManualClock clock = new ManualClock();
+        ShortenerService svc = new ShortenerService(repo, new Base62Generator(), clock);
+        Random rnd = new Random(42);
+        UUID[] owners = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        Map<String, UUID> ownerOf = new HashMap<>();
+        for (int i = 0; i < 400; i++) {
+            UUID owner = owners[i % owners.length];
+            String code = svc.createShortLink(owner, "https://example.com/" + i, null,
+                    Duration.ofSeconds(1 + rnd.nextInt(100)), 7, PREFIX).getShortUrl();
+            ownerOf.put(code, owner);
+        }
+        List<String> codes = new ArrayList<>(ownerOf.keySet());
+        Set<String> deleted = ConcurrentHashMap.newKeySet();
+        LongAdder expiredResults = new LongAdder();
+        LongAdder swept = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+
+        hammer(THREADS, t -> {
+            if (t == 0) {
+                // time keeper and janitor: moves past every TTL in half-second steps
+                for (int step = 0; step < 240; step++) {
+                    clock.advance(500);
+                    swept.add(svc.cleanupExpiredLinks());
+                    Thread.yield();
+                }
+                stop.set(true);
+            } else if (t == 1) {
+                for (int i = 0; !stop.get(); i = (i + 7) % codes.size()) {
+                    String code = codes.get(i);
+                    if (svc.deleteLink(ownerOf.get(code), code)) deleted.add(code);
+                    if (deleted.size() >= 100) break;
+                }
+            } else {
+                Random local = new Random(t);
+                while (!stop.get()) {
+                    if (svc.resolveAndRegisterClick(codes.get(local.nextInt(codes.size()))).getStatus() == ResolveStatus.EXPIRED)
+                        expiredResults.increment();
+                }
+            }
+        });
+
+        Map<String, Integer> expiryNotices = new HashMap<>();
+        collectExpiryNotices(svc, owners, expiryNotices);
+        for (LinkRecord survivor : repo.findAllLinks()) {
+            assertFalse(deleted.contains(survivor.getShortUrl()), "deleted link came back: " + survivor.getShortUrl());
+            assertFalse(expiryNotices.containsKey(survivor.getShortUrl()), "expired link came back: " + survivor.getShortUrl());
+        }
+        int noticesBefore = expiryNotices.values().stream().mapToInt(Integer::intValue).sum();
+        assertEquals(expiredResults.sum() + swept.sum(), noticesBefore, "one notice per link removed on expiry");
+
+        swept.add(svc.cleanupExpiredLinks());
+        collectExpiryNotices(svc, owners, expiryNotices);
+        assertTrue(repo.findAllLinks().isEmpty());
+        for (String code : codes) {
+            int notices = expiryNotices.getOrDefault(code, 0);
+            assertEquals(deleted.contains(code) ? 0 : 1, notices, "expiry notices for " + code);
+        }
+    }
+
+    @Test
+    void throughputScaling() throws Exception {
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int n = 1; n < THREADS; n *= 2) threadCounts.add(n);
+        threadCounts.add(THREADS);
+
+        System.out.printf("%-20s %8s %12s %8s%n", "repository", "threads", "ops/s", "scaling");
+        for (Repo r : repositories().toList()) {
+            // discarded pass so JIT compilation and class loading do not count against the first measurement
+            measure(r, THREADS, 500_000_000L);
+            double base = 0;
+            for (int threads : threadCounts) {
+                double rate = measure(r, threads, 500_000_000L);
+                if (threads == 1) base = rate;
+                System.out.printf("%-20s %8d %12.0f %7.2fx%n", r.name(), threads, rate, rate / base);
+            }
+        }
+    }
+
+    /**
+     * Mixed resolve/create throughput in ops per second on a fresh repository.
+     */
+    private double measure(Repo r, int threads, long nanos) throws Exception {
+        LinkRepository repo = open(r);
+        ShortenerService svc = new ShortenerService(repo, new Base62Generator());
+        UUID owner = UUID.randomUUID();
+        Instant now = Instant.now();
+        String[] codes = new String[1_000];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = PREFIX + "p" + i;
+            repo.saveLink(new LinkRecord(owner, "https://example.com/" + i, codes[i], now, now.plus(Duration.ofHours(1)), null));
+        }
+        repo.save();
+
+        LongAdder ops = new LongAdder();
+        long deadline = System.nanoTime() + nanos;
+        long start = System.nanoTime();
+        hammer(threads, t -> {
+            Random rnd = new Random(t);
+            while (System.nanoTime() < deadline) {
+                if (rnd.nextInt(10) == 0) {
+                    svc.createShortLink(owner, "https://example.com/new/" + rnd.nextInt(), null, Duration.ofHours(1), 7, PREFIX);
+                } else {
+                    svc.resolveAndRegisterClick(codes[rnd.nextInt(codes.length)]);
+                }
+                ops.increment();
+            }
+        });
+        double rate = ops.sum() / ((System.nanoTime() - start) / 1e9);
+        closeRepositories();
+        return rate;
+    }
+
+    private LinkRepository open(Repo r) {
+        LinkRepository repo = r.factory().get();
+        opened.add(repo);
+        return repo;
+    }
+
+    private static Path tempDir() {
+        try {
+            return Files.createTempDirectory("stress-" + UUID.randomUUID());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void collectExpiryNotices(ShortenerService svc, UUID[] owners, Map<String, Integer> notices) {
+        for (UUID owner : owners) {
+            for (String note : svc.popNotifications(owner)) {
+                assertTrue(note.contains("expired"), note);
+                notices.merge(note.substring(note.lastIndexOf(' ') + 1), 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Runs {@code body} with indexes 0..threads-1 on as many threads released together and rethrows
+     * the first failure.
+     */
+    private static void hammer(int threads, IntConsumer body) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                body.accept(index);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> f : futures) {
+                try {
+                    f.get(5, TimeUnit.MINUTES);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error err) throw err;
+                    throw (Exception) e.getCause();
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+
+    @Test
+    void tokenBucketAllowsBurstThenRate() throws Exception {
+        TokenBuckets<String> buckets = new TokenBuckets<>(10, 5, 1000);
+        long t0 = 1_000_000_000L;
+        for (int i = 0; i < 5; i++) assertTrue(buckets.tryAcquire("a", t0));
+        assertFalse(buckets.tryAcquire("a", t0));
+        assertTrue(buckets.tryAcquire("b", t0), "keys are independent");
+        assertFalse(buckets.tryAcquire("a", t0 + 50_000_000L));
+        assertTrue(buckets.tryAcquire("a", t0 + 100_000_000L));
+        assertFalse(buckets.tryAcquire("a", t0 + 100_000_000L));
+
+        TokenBuckets<String> shared = new TokenBuckets<>(1, 1_000, 1000);
+        AtomicInteger granted = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) if (shared.tryAcquire("hot", t0)) granted.incrementAndGet();
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(1_000, granted.get());
+    }
+
+    @Test
+    void concurrencyLimitAdaptsToLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 10, 1_000_000_000L);
+        for (int i = 0; i < 10; i++) assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(5_000_000_000L);
+        assertEquals(9, limiter.getLimit());
+        limiter.release(5_000_000_000L);
+        assertEquals(9, limiter.getLimit(), "one cut per latency target interval");
+        for (int i = 0; i < 8; i++) limiter.release(100);
+        assertEquals(0, limiter.getInFlight());
+        assertTrue(limiter.getLimit() >= 9);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(100);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void serviceRejectsExcessCreatesAndResolves() {
+        AdmissionControl admission = new AdmissionControl(
+                new TokenBuckets<>(0.001, 3, 1000), new TokenBuckets<>(0.001, 2, 1000), null);
+        ShortenerService svc = new ShortenerService(new InMemoryLinkRepository(), new Base62Generator(),
+                new ShortenerService.SystemClock(), admission);
+        UUID owner = UUID.randomUUID();
+        String link = null;
+        for (int i = 0; i < 3; i++) {
+            link = svc.createShortLink(owner, "https://example.com/" + i, null, Duration.ofHours(1), 7, "clck.local/").getShortUrl();
+        }
+        assertThrows(AdmissionRejectedException.class,
+                () -> svc.createShortLink(owner, "https://example.com/x", null, Duration.ofHours(1), 7, "clck.local/"));
+        svc.createShortLink(UUID.randomUUID(), "https://example.com/other", null, Duration.ofHours(1), 7, "clck.local/");
+
+        assertEquals(ResolveStatus.OK, svc.resolveAndRegisterClick(link, "bot").getStatus());
+        assertEquals(ResolveStatus.NOT_FOUND, svc.resolveAndRegisterClick("clck.local/zzzzzzz", "bot").getStatus());
+        assertEquals(ResolveStatus.REJECTED, svc.resolveAndRegisterClick(link, "bot").getStatus());
+        assertEquals(ResolveStatus.OK, svc.resolveAndRegisterClick(link, "human").getStatus());
+        assertEquals(1, admission.getCreatesRejected());
+        assertEquals(1, admission.getResolvesRejected());
+    }
+
+    @Test
+    void overloadedServiceShedsInsteadOfQueueing() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryLinkRepository repo = new InMemoryLinkRepository() {
+            @Override
+            public Optional<LinkRecord> findByShort(String shortUrl) {
+                if (shortUrl.endsWith("slow")) {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.findByShort(shortUrl);
+            }
+        };
+        AdmissionControl admission = new AdmissionControl(new TokenBuckets<>(0.001, 1, 1000), null,
+                                                          new AdaptiveConcurrencyLimiter(1, 1, 1_000_000_000L));
+        ShortenerService svc = new ShortenerService(repo, new Base62Generator(), Instant::now, admission);
+        UUID owner = UUID.randomUUID();
+
+        Thread slow = new Thread(() -> svc.resolveAndRegisterClick("clck.local/slow"));
+        slow.start();
+        entered.await();
+        assertEquals(ResolveStatus.REJECTED, svc.resolveAndRegisterClick("clck.local/fast").getStatus());
+        assertThrows(AdmissionRejectedException.class,
+                () -> svc.createShortLink(owner, "https://example.com/", null, Duration.ofHours(1), 7, "clck.local/"));
+        release.countDown();
+        slow.join();
+        assertEquals(ResolveStatus.NOT_FOUND, svc.resolveAndRegisterClick("clck.local/fast").getStatus());
+        assertEquals(2, admission.getOverloadRejected());
+        // the shed create did not use up the owner's single token
+        svc.createShortLink(owner, "https://example.com/", null, Duration.ofHours(1), 7, "clck.local/");
+        assertThrows(AdmissionRejectedException.class,
+                () -> svc.createShortLink(owner, "https://example.com/", null, Duration.ofHours(1), 7, "clck.local/"));
+        assertEquals(0, admission.getInFlight());
+    }
+
+    @Test
+    void rejectionsCrossTheShardProtocol() throws Exception {
+        InMemoryLinkRepository repo = new InMemoryLinkRepository();
+        AdmissionControl admission = new AdmissionControl(
+                new TokenBuckets<>(0.001, 1, 1000), new TokenBuckets<>(0.001, 1, 1000), null);
+        ShortenerService svc = new ShortenerService(repo, new Base62Generator(), new ShortenerService.SystemClock(), admission);
+        ShardServer server = new ShardServer(svc, repo, 0).start();
+        try (ShardRouter router = new ShardRouter(java.util.List.of(new ShardClient("localhost", server.getPort())), 8, new Base62Generator())) {
+            UUID owner = UUID.randomUUID();
+            String link = router.createShortLink(owner, "https://example.com/", null, Duration.ofHours(1), 7, "clck.local/").getShortUrl();
+            assertThrows(AdmissionRejectedException.class,
+                    () -> router.createShortLink(owner, "https://example.com/2", null, Duration.ofHours(1), 7, "clck.local/"));
+            assertEquals(ResolveStatus.OK, router.resolveAndRegisterClick(link, "c1").getStatus());
+            assertEquals(ResolveStatus.REJECTED, router.resolveAndRegisterClick(link, "c1").getStatus());
+            assertEquals(ResolveStatus.OK, router.resolveAndRegisterClick(link).getStatus());
+        } finally {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchModeTest {
+
+    @Test
+    void batchRunsEveryCommandAndPersistsOnce() throws Exception {
+        Path dir = Files.createTempDirectory("batch");
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) script.append("shorten https://example.com/").append(i).append('\n');
+        String longUrl = "https://example.com/" + "x".repeat(100_000);
+        script.append("  S   ").append(longUrl).append("\r\n\n");
+        script.append("go clck.test/missing\n");
+        script.append("bogus\n");
+        script.append("shorten\n");
+        script.append("quit\n");
+        script.append("shorten https://example.com/after-quit\n");
+        Path input = dir.resolve("commands.txt");
+        Files.writeString(input, script);
+
+        Properties props = new Properties();
+        props.setProperty("repository_path", dir.toString());
+        props.setProperty("service_address", "clck.test");
+        ServiceSettings settings = new ServiceSettings();
+        settings.from(props);
+
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            ShortenerServiceCLI.run(settings, new String[]{"-u", "batch", "--batch", input.toString(), "--flush-every", "5000"});
+        } finally {
+            System.setOut(stdout);
+        }
+
+        List<String> lines = captured.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(20_004, lines.size());
+        assertTrue(lines.get(0).startsWith("clck.test/"));
+        assertEquals("NOT_FOUND", lines.get(20_001));
+        assertEquals("line 20004: Unknown command: bogus", lines.get(20_002));
+        assertEquals("line 20005: Expected an argument for shorten", lines.get(20_003));
+
+        FileLinkRepository saved = new FileLinkRepository(dir.resolve("repo").toString());
+        UUID owner = UUID.nameUUIDFromBytes("batch".getBytes());
+        assertEquals(20_001, saved.findByOwner(owner).size());
+        assertEquals(lines.get(20_000), saved.findByLong(longUrl).orElseThrow().getShortUrl());
+    }
+
+    @Test
+    void pipedCommandsRunAsTheyArrive() throws Exception {
+        ServiceSettings settings = settingsIn(Files.createTempDirectory("batch-pipe"));
+        PipedOutputStream commands = new PipedOutputStream();
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        Thread batch = runBatchOn(settings, new PipedInputStream(commands), captured);
+
+        commands.write("shorten https://example.com/piped\n".getBytes(StandardCharsets.UTF_8));
+        commands.flush();
+        // answered while the input is still open, long before a 64 KB block could fill
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (!captured.toString(StandardCharsets.UTF_8).startsWith("clck.test/")) Thread.sleep(10);
+        });
+        commands.write("quit\n".getBytes(StandardCharsets.UTF_8));
+        commands.close();
+        batch.join(10_000);
+        assertFalse(batch.isAlive());
+    }
+
+    @Test
+    void readErrorEndsTheBatch() throws Exception {
+        ServiceSettings settings = settingsIn(Files.createTempDirectory("batch-error"));
+        byte[] first = "go clck.test/missing\n".getBytes(StandardCharsets.UTF_8);
+        InputStream failing = new InputStream() {
+            int pos;
+            @Override
+            public int read() throws IOException {
+                if (pos < first.length) return first[pos++];
+                throw new IOException("disk gone");
+            }
+        };
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        Thread batch = runBatchOn(settings, failing, captured);
+        batch.join(10_000);
+
+        assertFalse(batch.isAlive());
+        assertEquals(List.of("NOT_FOUND", "Failed to run batch: disk gone"),
+                captured.toString(StandardCharsets.UTF_8).lines().toList());
+    }
+
+    private static ServiceSettings settingsIn(Path dir) {
+        Properties props = new Properties();
+        props.setProperty("repository_path", dir.toString());
+        props.setProperty("service_address", "clck.test");
+        ServiceSettings settings = new ServiceSettings();
+        settings.from(props);
+        return settings;
+    }
+
+    // Runs a batch reading stdin on its own thread; System.in/out are restored when it ends.
+    private static Thread runBatchOn(ServiceSettings settings, InputStream stdin, ByteArrayOutputStream stdout) {
+        Thread batch = new Thread(() -> {
+            InputStream in = System.in;
+            PrintStream out = System.out;
+            System.setIn(stdin);
+            System.setOut(new PrintStream(stdout, true, StandardCharsets.UTF_8));
+            try {
+                ShortenerServiceCLI.run(settings, new String[]{"-u", "batch", "--batch", "-", "--flush-every", "1"});
+            } finally {
+                System.setIn(in);
+                System.setOut(out);
+            }
+        });
+        batch.start();
+        return batch;
+    }
+}
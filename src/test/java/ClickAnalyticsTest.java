@@ -0,0 +1,101 @@
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClickAnalyticsTest {
+
+    static class FakeClock implements ShortenerService.Clock {
+        private Instant now;
+        FakeClock(Instant start) { this.now = start; }
+        @Override public Instant now() { return now; }
+        void plusSeconds(long s) { now = now.plusSeconds(s); }
+    }
+
+    @Test
+    void clicksAreBucketedByMinuteHourAndDay() {
+        FakeClock clock = new FakeClock(Instant.parse("2026-01-29T12:00:00Z"));
+        ShortenerService svc = new ShortenerService(new InMemoryLinkRepository(), new Base62Generator(), clock);
+        UUID owner = UUID.randomUUID();
+        String link = svc.createShortLink(owner, "https://example.com/a", null, Duration.ofDays(60), 7, "clck.local/").getShortUrl();
+
+        for (int i = 0; i < 3; i++) svc.resolveAndRegisterClick(link);
+        // nothing drained yet: the hour and day rings are not allocated, the current clicks still count
+        ClickStats first = svc.getAnalytics().stats(link).orElseThrow();
+        assertArrayEquals(new long[]{3, 0}, first.lastHours(svc.getAnalytics().currentMinute(), 2));
+        assertTrue(svc.getAnalytics().top(10).isEmpty());
+        clock.plusSeconds(60);
+        svc.resolveAndRegisterClick(link);
+        clock.plusSeconds(2 * 3600);
+        for (int i = 0; i < 5; i++) svc.resolveAndRegisterClick(link);
+
+        ClickAnalytics analytics = svc.getAnalytics();
+        ClickStats stats = analytics.stats(link).orElseThrow();
+        long now = analytics.currentMinute();
+        assertEquals(9, stats.total());
+        assertArrayEquals(new long[]{5, 0, 0}, stats.lastMinutes(now, 3));
+        assertArrayEquals(new long[]{5, 0, 4}, stats.lastHours(now, 3));
+        assertArrayEquals(new long[]{9, 0}, stats.lastDays(now, 2));
+        assertEquals(5, analytics.clicksLastHour(link));
+        assertEquals(9, analytics.clicksLastDay(link));
+
+        clock.plusSeconds(25 * 3600);
+        now = analytics.currentMinute();
+        assertArrayEquals(new long[]{0, 0}, stats.lastHours(now, 2));
+        assertEquals(0, analytics.clicksLastDay(link));
+        assertArrayEquals(new long[]{0, 9}, stats.lastDays(now, 2));
+
+        svc.deleteLink(owner, link);
+        assertTrue(analytics.stats(link).isEmpty());
+    }
+
+    @Test
+    void topListFollowsSkewedTraffic() throws Exception {
+        FakeClock clock = new FakeClock(Instant.parse("2026-01-29T12:00:00Z"));
+        ShortenerService svc = new ShortenerService(new InMemoryLinkRepository(), new Base62Generator(), clock);
+        UUID owner = UUID.randomUUID();
+        List<String> links = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            links.add(svc.createShortLink(owner, "https://example.com/" + i, null, Duration.ofDays(1), 7, "clck.local/").getShortUrl());
+        }
+        for (int i = 0; i < 500; i++) {
+            for (int c = 0; c < 1000 / (i + 1); c++) svc.resolveAndRegisterClick(links.get(i));
+        }
+        assertTrue(svc.getAnalytics().top(3).isEmpty(), "minutes in progress are not in the top list yet");
+
+        clock.plusSeconds(60);
+        svc.getAnalytics().rollAll();
+        List<String> top = svc.getAnalytics().top(3).stream().map(e -> e.getKey()).toList();
+        assertEquals(links.subList(0, 3), top);
+        assertEquals(1000, svc.getAnalytics().top(1).get(0).getValue());
+
+        svc.getAnalytics().registerMBean();
+        String[] fromJmx = (String[]) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(ClickAnalytics.OBJECT_NAME), "TopLinks");
+        assertEquals(links.get(0) + "=1000", fromJmx[0]);
+    }
+
+    @Test
+    void concurrentClicksOnOneLinkAreAllCounted() throws Exception {
+        ShortenerService svc = new ShortenerService(new InMemoryLinkRepository(), new Base62Generator());
+        String link = svc.createShortLink(UUID.randomUUID(), "https://example.com/viral", null, Duration.ofHours(1), 7, "clck.local/").getShortUrl();
+        ClickAnalytics analytics = svc.getAnalytics();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) analytics.record(link, Instant.now());
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(80_000, analytics.stats(link).orElseThrow().total());
+    }
+}
@@ -0,0 +1,104 @@
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CodeRangeLeasesTest {
+
+    @Test
+    void nodesSharingLeaseFileMintDisjointCodes() throws Exception {
+        Path file = Files.createTempDirectory("leases").resolve("codes.lease");
+        try (LeasedCodeGenerator a = new LeasedCodeGenerator(new CodeRangeLeases(file, 7, Duration.ofMinutes(1)), "a", Duration.ofHours(1));
+             LeasedCodeGenerator b = new LeasedCodeGenerator(new CodeRangeLeases(file, 7, Duration.ofMinutes(1)), "b", Duration.ofHours(1))) {
+            assertTrue(a.isUnique());
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < 500; i++) {
+                String ca = a.nextCode(3);
+                String cb = b.nextCode(3);
+                assertEquals(3, ca.length());
+                assertTrue(seen.add(ca), "duplicate " + ca);
+                assertTrue(seen.add(cb), "duplicate " + cb);
+            }
+        }
+    }
+
+    @Test
+    void keyedMappingIsABijectionOverTheCodeSpace() throws Exception {
+        Path dir = Files.createTempDirectory("leases");
+        long space = CodeRangeLeases.codeSpace(2);
+        List<String> first = new ArrayList<>();
+        try (LeasedCodeGenerator gen = new LeasedCodeGenerator(new CodeRangeLeases(dir.resolve("a.lease"), space, Duration.ofMinutes(1)),
+                                                               "a", Duration.ofHours(1))) {
+            for (long i = 0; i < space; i++) first.add(gen.nextCode(2));
+            assertThrows(IllegalStateException.class, () -> gen.nextCode(2));
+        }
+        assertEquals(space, new HashSet<>(first).size());
+        assertTrue(first.stream().allMatch(code -> code.length() == 2));
+
+        // another lease file has another secret, hence another order
+        List<String> second = new ArrayList<>();
+        try (LeasedCodeGenerator gen = new LeasedCodeGenerator(new CodeRangeLeases(dir.resolve("b.lease"), space, Duration.ofMinutes(1)),
+                                                               "b", Duration.ofHours(1))) {
+            for (int i = 0; i < 100; i++) second.add(gen.nextCode(2));
+        }
+        assertNotEquals(first.subList(0, 100), second);
+    }
+
+    @Test
+    void exhaustedCodeSpaceIsReported() throws Exception {
+        Path file = Files.createTempDirectory("leases").resolve("codes.lease");
+        CodeRangeLeases leases = new CodeRangeLeases(file, 40, Duration.ofMinutes(1));
+        CodeRangeLeases.Range first = leases.acquire("a", 1);
+        CodeRangeLeases.Range second = leases.acquire("b", 1);
+        assertEquals(40, first.size());
+        assertEquals(62, second.getEnd());
+        assertThrows(IllegalStateException.class, () -> leases.acquire("c", 1));
+    }
+
+    @Test
+    void serviceSkipsExistenceCheckForLeasedCodes() throws Exception {
+        Path file = Files.createTempDirectory("leases").resolve("codes.lease");
+        InMemoryLinkRepository repo = new InMemoryLinkRepository() {
+            @Override
+            public boolean shortExists(String shortUrl) {
+                throw new AssertionError("existence check with a unique generator");
+            }
+        };
+        try (LeasedCodeGenerator gen = new LeasedCodeGenerator(new CodeRangeLeases(file, 100, Duration.ofMinutes(1)), "a", Duration.ofHours(1))) {
+            ShortenerService svc = new ShortenerService(repo, gen);
+            LinkRecord r = svc.createShortLink(UUID.randomUUID(), "https://example.com/x", null,
+                    Duration.ofHours(1), 6, "clck.local/");
+            assertEquals(ResolveStatus.OK, svc.resolveAndRegisterClick(r.getShortUrl()).getStatus());
+        }
+    }
+
+    @Test
+    void expiredLeaseTailIsReclaimedButReservedCodesAreNot() throws Exception {
+        Path file = Files.createTempDirectory("leases").resolve("codes.lease");
+        AtomicLong millis = new AtomicLong();
+        CodeRangeLeases leases = new CodeRangeLeases(file, 100, Duration.ofSeconds(10), () -> Instant.ofEpochMilli(millis.get()));
+        CodeRangeLeases.Range crashed = leases.acquire("a", 3);
+        leases.reserve("a", crashed, 30);
+        assertTrue(leases.canMint(crashed, 29));
+        assertFalse(leases.canMint(crashed, 30));
+
+        millis.addAndGet(11_000);
+        assertFalse(leases.canMint(crashed, 0));
+        CodeRangeLeases.Range reclaimed = leases.acquire("b", 3);
+        assertEquals(30, reclaimed.getStart());
+        assertEquals(100, reclaimed.getEnd());
+        assertThrows(IllegalStateException.class, () -> leases.reserve("a", crashed, 40));
+        assertEquals(100, leases.acquire("b", 3).getStart());
+    }
+}
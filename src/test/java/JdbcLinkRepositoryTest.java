@@ -0,0 +1,79 @@
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcLinkRepositoryTest {
+
+    private static LinkRecord link(UUID owner, String code, Instant createdAt) {
+        return new LinkRecord(owner, "https://example.com/" + code, "clck.local/" + code,
+                createdAt, createdAt.plus(Duration.ofHours(1)), 3);
+    }
+
+    @Test
+    void pendingWritesAreVisibleBeforeSave() {
+        try (JdbcLinkRepository repo = new JdbcLinkRepository("jdbc:h2:mem:")) {
+            UUID owner = UUID.randomUUID();
+            Instant now = Instant.parse("2026-01-29T12:00:00Z");
+            repo.saveLink(link(owner, "b", now.plusSeconds(1)));
+            repo.saveLink(link(owner, "a", now));
+
+            assertTrue(repo.shortExists("clck.local/a"));
+            assertEquals("https://example.com/b", repo.findByLong("https://example.com/b").orElseThrow().getLongUrl());
+
+            List<LinkRecord> owned = repo.findByOwner(owner);
+            assertEquals(List.of("clck.local/a", "clck.local/b"), owned.stream().map(LinkRecord::getShortUrl).toList());
+
+            repo.deleteByShort("clck.local/a");
+            assertFalse(repo.shortExists("clck.local/a"));
+            assertTrue(repo.findByShort("clck.local/a").isEmpty());
+        }
+    }
+
+    @Test
+    void committedStateSurvivesReopen() throws Exception {
+        Path dir = Files.createTempDirectory("jdbc-repo");
+        String url = "jdbc:h2:file:" + dir.resolve("repo");
+        UUID owner = UUID.randomUUID();
+        Instant now = Instant.parse("2026-01-29T12:00:00.123456789Z");
+
+        try (JdbcLinkRepository repo = new JdbcLinkRepository(url)) {
+            LinkRecord r = link(owner, "x", now);
+            repo.saveLink(r);
+            r.registerClick();
+            repo.saveLink(r);
+            repo.pushNotification(owner, "hello");
+            repo.save();
+        }
+
+        try (JdbcLinkRepository repo = new JdbcLinkRepository(url)) {
+            LinkRecord r = repo.findByShort("clck.local/x").orElseThrow();
+            assertEquals(1, r.getClicks());
+            assertEquals(3, r.getMaxClicks());
+            assertEquals(now, r.getCreatedAt());
+            assertEquals(List.of("hello"), repo.popNotifications(owner));
+            assertTrue(repo.popNotifications(owner).isEmpty());
+        }
+    }
+
+    @Test
+    void blockedClickNoticeIsCommitted() {
+        try (JdbcLinkRepository repo = new JdbcLinkRepository("jdbc:h2:mem:")) {
+            ShortenerService service = new ShortenerService(repo, new Base62Generator());
+            UUID owner = UUID.randomUUID();
+            String code = service.createShortLink(owner, "https://example.com/a", 1, Duration.ofHours(1), 7, "clck.local/").getShortUrl();
+            assertEquals(ResolveStatus.OK, service.resolveAndRegisterClick(code).getStatus());
+            assertEquals(ResolveStatus.LIMIT_REACHED, service.resolveAndRegisterClick(code).getStatus());
+
+            repo.load(); // drops anything not committed, as a crash would
+            assertEquals(2, repo.popNotifications(owner).size());
+        }
+    }
+}
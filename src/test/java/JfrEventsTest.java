@@ -0,0 +1,49 @@
+import jdk.jfr.Recording;
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JfrEventsTest {
+
+    @Test
+    void serviceOperationsAreRecordedAndSummarized() throws Exception {
+        Path dir = Files.createTempDirectory("jfr-events");
+        Path out = dir.resolve("run.jfr");
+        FileLinkRepository repo = new FileLinkRepository(dir.resolve("repo").toString());
+        ShortenerService svc = new ShortenerService(repo, new Base62Generator());
+        UUID owner = UUID.randomUUID();
+
+        try (Recording recording = new Recording()) {
+            for (String name : new String[]{"LinkOperation", "RepositoryPersist", "ExpirySweep", "Notification"}) {
+                recording.enable("org.example." + name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            LinkRecord r = svc.createShortLink(owner, "https://example.com/a", 1, Duration.ofHours(1), 7, "clck.local/");
+            svc.resolveAndRegisterClick(r.getShortUrl());
+            svc.resolveAndRegisterClick(r.getShortUrl());
+            svc.resolveAndRegisterClick("clck.local/missing");
+            svc.deleteLink(owner, r.getShortUrl());
+            svc.cleanupExpiredLinks();
+            recording.stop();
+            recording.dump(out);
+        }
+
+        Map<String, JfrReport.Summary> report = JfrReport.summarize(out);
+        assertEquals(1, report.get("LinkOperation create").count());
+        assertEquals(3, report.get("LinkOperation resolve").count());
+        assertEquals(1, report.get("LinkOperation delete").count());
+        assertEquals(1, report.get("ExpirySweep").count());
+        assertTrue(report.get("Notification limit").count() >= 1);
+        assertTrue(report.get("RepositoryPersist save").count() >= 2);
+        JfrReport.Summary resolve = report.get("LinkOperation resolve");
+        assertTrue(resolve.percentile(50) <= resolve.percentile(99.9));
+        assertEquals(resolve.max(), resolve.percentile(100));
+    }
+}
@@ -0,0 +1,55 @@
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+
+    @Test
+    void traceIsReproducibleAndSkewed() throws Exception {
+        LoadGenerator.Workload w = new LoadGenerator.Workload().links(1_000).ops(20_000).zipf(1.2).unknown(0.1).creates(0.1);
+        List<LoadGenerator.Op> trace = w.generate();
+        assertEquals(trace, w.generate());
+        assertNotEquals(trace, new LoadGenerator.Workload().links(1_000).ops(20_000).seed(7).generate());
+
+        long top = trace.stream().filter(op -> op.target() == 0).count();
+        long tail = trace.stream().filter(op -> op.target() == 999).count();
+        long unknown = trace.stream().filter(op -> op.target() < 0).count();
+        long creates = trace.stream().filter(op -> op.type() == LoadGenerator.OpType.CREATE).count();
+        assertTrue(top > 50 * Math.max(1, tail), "top " + top + " tail " + tail);
+        assertTrue(unknown > 1_000 && unknown < 2_600, "unknown " + unknown);
+        assertTrue(creates > 1_500 && creates < 2_500, "creates " + creates);
+
+        Path file = Files.createTempFile("trace", ".csv");
+        LoadGenerator.writeTrace(file, w, trace);
+        assertEquals(trace, LoadGenerator.readTrace(file));
+        assertEquals(w.toString(), LoadGenerator.readTraceWorkload(file).orElseThrow());
+    }
+
+    @Test
+    void traceForMoreLinksIsRefused() {
+        List<LoadGenerator.Op> trace = new LoadGenerator.Workload().links(1_000).ops(5_000).generate();
+        LoadGenerator.Workload smaller = new LoadGenerator.Workload().links(100).owners(10);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> LoadGenerator.run(new InMemoryLinkRepository(), smaller, trace));
+        assertTrue(e.getMessage().contains("only 100 links"), e.getMessage());
+    }
+
+    @Test
+    void openLoopRunReportsEveryOperation() throws Exception {
+        LoadGenerator.Workload w = new LoadGenerator.Workload()
+                .links(500).owners(10).ops(3_000).warmup(500).rate(5_000).threads(2).unknown(0.2).creates(0.1).ttl("uniform:60:120");
+        LoadGenerator.Report report = LoadGenerator.run(new InMemoryLinkRepository(), w, w.generate());
+
+        assertEquals(2_500, report.count(LoadGenerator.OpType.CREATE) + report.count(LoadGenerator.OpType.RESOLVE));
+        assertEquals(0, report.getErrors());
+        assertTrue(report.getStatusCount(ResolveStatus.NOT_FOUND) > 0);
+        assertTrue(report.getStatusCount(ResolveStatus.OK) > 0);
+        assertTrue(report.percentile(LoadGenerator.OpType.RESOLVE, 50) <= report.percentile(LoadGenerator.OpType.RESOLVE, 99.9));
+        assertTrue(report.getThroughput() > 0);
+    }
+}
@@ -0,0 +1,193 @@
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicationTest {
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("condition not reached in time");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void followerServesLeaderLinksAndForwardsClicks() throws Exception {
+        InMemoryLinkRepository leaderStore = new InMemoryLinkRepository();
+        try (ReplicationLeader leader = new ReplicationLeader(leaderStore, 0, Duration.ofMillis(50));
+             ReplicaLinkRepository replica = new ReplicaLinkRepository(new InMemoryLinkRepository(),
+                     "localhost", leader.getPort(), Duration.ofSeconds(2))) {
+            ShortenerService writer = new ShortenerService(leader, new Base62Generator());
+            ShortenerService reader = new ShortenerService(replica, new Base62Generator());
+            UUID owner = UUID.randomUUID();
+
+            LinkRecord before = writer.createShortLink(owner, "https://example.com/a", 2, Duration.ofHours(1), 7, "clck.local/");
+            assertTrue(replica.awaitSync(Duration.ofSeconds(5)));
+            LinkRecord after = writer.createShortLink(owner, "https://example.com/b", 2, Duration.ofHours(1), 7, "clck.local/");
+            waitUntil(() -> replica.shortExists(after.getShortUrl()));
+
+            assertEquals(ResolveStatus.OK, reader.resolveAndRegisterClick(before.getShortUrl()).getStatus());
+            assertEquals(ResolveStatus.OK, reader.resolveAndRegisterClick(before.getShortUrl()).getStatus());
+            waitUntil(() -> leaderStore.findByShort(before.getShortUrl()).orElseThrow().getClicks() == 2);
+            assertTrue(leaderStore.findByShort(before.getShortUrl()).orElseThrow().isBlockedByLimit());
+            assertEquals(ResolveStatus.LIMIT_REACHED, reader.resolveAndRegisterClick(before.getShortUrl()).getStatus());
+            waitUntil(() -> !writer.popNotifications(owner).isEmpty());
+
+            assertTrue(writer.deleteLink(owner, after.getShortUrl()));
+            waitUntil(() -> !replica.shortExists(after.getShortUrl()));
+            assertThrows(IllegalStateException.class,
+                    () -> reader.createShortLink(owner, "https://example.com/c", null, Duration.ofHours(1), 7, "clck.local/"));
+        }
+    }
+
+    @Test
+    void followerRefusesLookupsOnceStale() throws Exception {
+        ReplicationLeader leader = new ReplicationLeader(new InMemoryLinkRepository(), 0, Duration.ofMillis(20));
+        try (ReplicaLinkRepository replica = new ReplicaLinkRepository(new InMemoryLinkRepository(),
+                "localhost", leader.getPort(), Duration.ofMillis(200))) {
+            assertTrue(replica.awaitSync(Duration.ofSeconds(5)));
+            assertTrue(replica.findByShort("clck.local/none").isEmpty());
+
+            leader.close();
+            waitUntil(replica::isStale);
+            assertThrows(IllegalStateException.class, () -> replica.findByShort("clck.local/none"));
+        }
+    }
+
+    @Test
+    void reconnectingFollowerDropsLinksDeletedMeanwhile() throws Exception {
+        InMemoryLinkRepository local = new InMemoryLinkRepository();
+        Instant now = Instant.now();
+        local.saveLink(new LinkRecord(UUID.randomUUID(), "https://example.com/gone", "clck.local/gone",
+                now, now.plusSeconds(60), null));
+        try (ReplicationLeader leader = new ReplicationLeader(new InMemoryLinkRepository(), 0, Duration.ofMillis(50));
+             ReplicaLinkRepository replica = new ReplicaLinkRepository(local, "localhost", leader.getPort(), Duration.ofSeconds(2))) {
+            assertTrue(replica.awaitSync(Duration.ofSeconds(5)));
+            assertEquals(List.of(), replica.findAllLinks());
+        }
+    }
+
+    @Test
+    void followersTogetherStayWithinClickLimit() throws Exception {
+        try (ReplicationLeader leader = new ReplicationLeader(new InMemoryLinkRepository(), 0, Duration.ofMillis(50));
+             ReplicaLinkRepository first = new ReplicaLinkRepository(new InMemoryLinkRepository(),
+                     "localhost", leader.getPort(), Duration.ofSeconds(2));
+             ReplicaLinkRepository second = new ReplicaLinkRepository(new InMemoryLinkRepository(),
+                     "localhost", leader.getPort(), Duration.ofSeconds(2))) {
+            UUID owner = UUID.randomUUID();
+            String code = new ShortenerService(leader, new Base62Generator())
+                    .createShortLink(owner, "https://example.com/a", 3, Duration.ofHours(1), 7, "clck.local/").getShortUrl();
+            assertTrue(first.awaitSync(Duration.ofSeconds(5)));
+            assertTrue(second.awaitSync(Duration.ofSeconds(5)));
+            waitUntil(() -> first.shortExists(code) && second.shortExists(code));
+
+            ShortenerService a = new ShortenerService(first, new Base62Generator());
+            ShortenerService b = new ShortenerService(second, new Base62Generator());
+            int ok = 0;
+            for (int i = 0; i < 3; i++) {
+                if (a.resolveAndRegisterClick(code).getStatus() == ResolveStatus.OK) ok++;
+                if (b.resolveAndRegisterClick(code).getStatus() == ResolveStatus.OK) ok++;
+            }
+            assertEquals(3, ok);
+            // the leader keeps every notice once: one for reaching the limit and one per blocked click,
+            // readable through either follower
+            List<String> notices = new ArrayList<>();
+            waitUntil(() -> {
+                notices.addAll(a.popNotifications(owner));
+                return notices.size() >= 4;
+            });
+            assertEquals(4, notices.size());
+            assertEquals(List.of(), b.popNotifications(owner));
+            assertEquals(List.of(), leader.popNotifications(owner));
+        }
+    }
+
+    @Test
+    void leaderAndFollowerClicksShareOneLimit() throws Exception {
+        InMemoryLinkRepository leaderStore = new InMemoryLinkRepository();
+        try (ReplicationLeader leader = new ReplicationLeader(leaderStore, 0, Duration.ofMillis(50));
+             ReplicaLinkRepository replica = new ReplicaLinkRepository(new InMemoryLinkRepository(),
+                     "localhost", leader.getPort(), Duration.ofSeconds(2))) {
+            ShortenerService local = new ShortenerService(leader, new Base62Generator());
+            ShortenerService remote = new ShortenerService(replica, new Base62Generator());
+            int limit = 300;
+            String code = local.createShortLink(UUID.randomUUID(), "https://example.com/a", limit, Duration.ofHours(1), 7,
+                                                "clck.local/").getShortUrl();
+            assertTrue(replica.awaitSync(Duration.ofSeconds(5)));
+            waitUntil(() -> replica.shortExists(code));
+
+            AtomicInteger ok = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] clickers = new Thread[2];
+            for (int t = 0; t < clickers.length; t++) {
+                ShortenerService svc = t == 0 ? local : remote;
+                clickers[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < limit; i++) {
+                        if (svc.resolveAndRegisterClick(code).getStatus() == ResolveStatus.OK) ok.incrementAndGet();
+                    }
+                });
+                clickers[t].start();
+            }
+            start.countDown();
+            for (Thread t : clickers) t.join();
+
+            assertEquals(limit, ok.get());
+            LinkRecord stored = leaderStore.findByShort(code).orElseThrow();
+            assertEquals(limit, stored.getClicks());
+            assertTrue(stored.isBlockedByLimit());
+        }
+    }
+
+    @Test
+    void limitedClickIsRejectedWhileLeaderIsGone() throws Exception {
+        ReplicationLeader leader = new ReplicationLeader(new InMemoryLinkRepository(), 0, Duration.ofMillis(50));
+        try (ReplicaLinkRepository replica = new ReplicaLinkRepository(new InMemoryLinkRepository(),
+                "localhost", leader.getPort(), Duration.ofSeconds(2))) {
+            String code = new ShortenerService(leader, new Base62Generator())
+                    .createShortLink(UUID.randomUUID(), "https://example.com/a", 5, Duration.ofHours(1), 7, "clck.local/").getShortUrl();
+            assertTrue(replica.awaitSync(Duration.ofSeconds(5)));
+            waitUntil(() -> replica.shortExists(code));
+
+            leader.close();
+            // still within the staleness bound, so the lookup works but the leader cannot grant the click
+            assertEquals(ResolveStatus.REJECTED,
+                    new ShortenerService(replica, new Base62Generator()).resolveAndRegisterClick(code).getStatus());
+        }
+    }
+
+    @Test
+    void stuckFollowerIsDroppedWithoutBlockingWrites() throws Exception {
+        try (ReplicationLeader leader = new ReplicationLeader(new InMemoryLinkRepository(), 0, Duration.ofSeconds(10));
+             Socket stuck = new Socket()) {
+            stuck.setReceiveBufferSize(4096);
+            stuck.connect(new InetSocketAddress("localhost", leader.getPort()));
+            waitUntil(() -> leader.getFollowerCount() == 1);
+            UUID owner = UUID.randomUUID();
+            Instant now = Instant.now();
+            // never read from the socket: writes keep going and the follower is cut off once it falls behind
+            for (int i = 0; i < 200_000; i++) {
+                leader.saveLink(new LinkRecord(owner, "https://example.com/" + i, "clck.local/" + i,
+                        now, now.plusSeconds(60), null));
+            }
+            waitUntil(() -> leader.getFollowerCount() == 0);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardingTest {
+
+    private static class Shard {
+        final InMemoryLinkRepository repo = new InMemoryLinkRepository();
+        final ShardServer server = new ShardServer(new ShortenerService(repo, new Base62Generator()), repo, 0).start();
+
+        ShardClient client() {
+            return new ShardClient("localhost", server.getPort());
+        }
+
+        String address() {
+            return "localhost:" + server.getPort();
+        }
+    }
+
+    @Test
+    void ringMovesOnlyKeysOfJoiningNode() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<String>(64).withNode("a", "a").withNode("b", "b");
+        ConsistentHashRing<String> after = before.withNode("c", "c");
+        int moved = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String key = "k" + i;
+            if (!before.owner(key).equals(after.owner(key))) {
+                assertEquals("c", after.owner(key));
+                moved++;
+            }
+        }
+        assertTrue(moved > 2_000 && moved < 4_700, "moved " + moved);
+    }
+
+    @Test
+    void routerKeepsLinksReachableWhileShardsJoinAndLeave() throws Exception {
+        Shard a = new Shard(), b = new Shard(), c = new Shard();
+        try (ShardRouter router = new ShardRouter(List.of(a.client(), b.client()), 32, new Base62Generator())) {
+            UUID owner = UUID.randomUUID();
+            List<LinkRecord> links = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                links.add(router.createShortLink(owner, "https://example.com/" + i, null, Duration.ofHours(1), 5, "clck.local/"));
+            }
+            assertFalse(a.repo.findAllLinks().isEmpty());
+            assertFalse(b.repo.findAllLinks().isEmpty());
+            assertEquals(200, router.listLinksByUser(owner).size());
+
+            router.addShard(c.client());
+            assertFalse(c.repo.findAllLinks().isEmpty());
+            assertEquals(200, a.repo.findAllLinks().size() + b.repo.findAllLinks().size() + c.repo.findAllLinks().size());
+            for (LinkRecord r : links) {
+                assertEquals(r.getLongUrl(), router.resolveAndRegisterClick(r.getShortUrl()).getLongUrl());
+            }
+
+            router.removeShard("localhost:" + a.server.getPort());
+            assertEquals(200, b.repo.findAllLinks().size() + c.repo.findAllLinks().size());
+            for (LinkRecord r : links) {
+                assertEquals(ResolveStatus.OK, router.resolveAndRegisterClick(r.getShortUrl()).getStatus());
+            }
+            assertTrue(router.deleteLink(owner, links.get(0).getShortUrl()));
+            assertEquals(199, router.listLinksByUser(owner).size());
+            assertThrows(IllegalArgumentException.class,
+                    () -> router.createShortLink(owner, "not a url", null, Duration.ofHours(1), 5, "clck.local/"));
+        } finally {
+            a.server.close();
+            b.server.close();
+            c.server.close();
+        }
+    }
+
+    @Test
+    void linksCreatedDuringMigrationStayReachable() throws Exception {
+        Shard a = new Shard(), b = new Shard();
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        try (ShardRouter router = new ShardRouter(List.of(a.client()), 32, new Base62Generator())) {
+            UUID owner = UUID.randomUUID();
+            List<Future<LinkRecord>> created = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String url = "https://example.com/" + i;
+                created.add(writers.submit(() -> router.createShortLink(owner, url, 1, Duration.ofHours(1), 5, "clck.local/")));
+                if (i == 100) router.addShard(b.client());
+            }
+            for (Future<LinkRecord> f : created) {
+                String code = f.get().getShortUrl();
+                assertEquals(ResolveStatus.OK, router.resolveAndRegisterClick(code).getStatus(), code);
+                assertEquals(ResolveStatus.LIMIT_REACHED, router.resolveAndRegisterClick(code).getStatus(), code);
+            }
+            assertEquals(ResolveStatus.NOT_FOUND, router.resolveAndRegisterClick("clck.local/none").getStatus());
+        } finally {
+            writers.shutdownNow();
+            a.server.close();
+            b.server.close();
+        }
+    }
+
+    @Test
+    void cliJoinAndLeaveMoveLinksAndNotifications() throws Exception {
+        Shard a = new Shard(), b = new Shard(), c = new Shard();
+        Properties props = new Properties();
+        props.setProperty("repository_path", Files.createTempDirectory("sharding").toString());
+        props.setProperty("service_address", "clck.test");
+        ServiceSettings settings = new ServiceSettings();
+        settings.from(props);
+        UUID owner = UUID.randomUUID();
+        List<LinkRecord> links = new ArrayList<>();
+        try {
+            try (ShardRouter router = new ShardRouter(List.of(a.client(), b.client()), settings.getShardVirtualNodes(), new Base62Generator())) {
+                for (int i = 0; i < 40; i++) {
+                    LinkRecord r = router.createShortLink(owner, "https://example.com/" + i, 1, Duration.ofHours(1), 5, "clck.test/");
+                    assertEquals(ResolveStatus.OK, router.resolveAndRegisterClick(r.getShortUrl()).getStatus());
+                    links.add(r);
+                }
+            }
+
+            String joined = runCli(settings, "--shards", a.address() + "," + b.address(), "--join-shard", c.address());
+            assertEquals(Set.of(a.address(), b.address(), c.address()), shardsIn(joined));
+            assertFalse(c.repo.findAllLinks().isEmpty());
+
+            assertFalse(a.repo.findAllLinks().isEmpty());
+            String left = runCli(settings, "--shards", a.address() + "," + b.address() + "," + c.address(),
+                    "--leave-shard", a.address());
+            assertEquals(Set.of(b.address(), c.address()), shardsIn(left));
+            assertEquals(links.size(), b.repo.findAllLinks().size() + c.repo.findAllLinks().size());
+            assertEquals(List.of(), a.repo.popNotifications(owner));
+
+            try (ShardRouter router = new ShardRouter(List.of(b.client(), c.client()), settings.getShardVirtualNodes(), new Base62Generator())) {
+                assertEquals(links.size(), router.popNotifications(owner).size());
+                for (LinkRecord r : links) {
+                    assertEquals(ResolveStatus.LIMIT_REACHED, router.resolveAndRegisterClick(r.getShortUrl()).getStatus());
+                }
+            }
+        } finally {
+            a.server.close();
+            b.server.close();
+            c.server.close();
+        }
+    }
+
+    private static String runCli(ServiceSettings settings, String... args) {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            List<String> all = new ArrayList<>(List.of("-u", "ops"));
+            all.addAll(List.of(args));
+            ShortenerServiceCLI.run(settings, all.toArray(new String[0]));
+        } finally {
+            System.setOut(stdout);
+        }
+        return captured.toString(StandardCharsets.UTF_8).trim();
+    }
+
+    private static Set<String> shardsIn(String output) {
+        assertTrue(output.startsWith("Shards: "), output);
+        return Set.of(output.substring("Shards: ".length()).split(","));
+    }
+}
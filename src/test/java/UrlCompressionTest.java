@@ -0,0 +1,50 @@
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UrlCompressionTest {
+
+    private static LinkRecord link(String longUrl, String shortUrl) {
+        Instant now = Instant.parse("2026-01-29T12:00:00Z");
+        return new LinkRecord(UUID.randomUUID(), longUrl, shortUrl, now, now.plusSeconds(60), null);
+    }
+
+    @Test
+    void longUrlsRoundTrip() {
+        List<String> urls = List.of(
+                "https://example.com",
+                "https://example.com/",
+                "https://example.com/products/42.html?utm_source=mail&utm_medium=email&fbclid=abc",
+                "http://user@host:8080/path?q=1#frag",
+                "https://пример.рф/статья?id=1",
+                "mailto:someone@example.com",
+                "https://example.com/\u0001\u001f\u0000raw",
+                "");
+        for (String url : urls) {
+            LinkRecord r = link(url, "clck.local/x");
+            assertEquals(url, r.getLongUrl());
+            assertTrue(r.hasLongUrl(url));
+            assertFalse(r.hasLongUrl(url + "x"));
+        }
+    }
+
+    @Test
+    void compressedUrlsSurviveFileSnapshot() throws Exception {
+        Path file = Files.createTempDirectory("url-codec").resolve("repo");
+        String url = "https://shop.example.org/category/shoes/index.html?utm_source=ads&utm_campaign=spring";
+        FileLinkRepository repo = new FileLinkRepository(file.toString());
+        repo.saveLink(link(url, "clck.local/a"));
+        repo.save();
+
+        FileLinkRepository reloaded = new FileLinkRepository(file.toString());
+        assertEquals(url, reloaded.findByShort("clck.local/a").orElseThrow().getLongUrl());
+        assertEquals("clck.local/a", reloaded.findByLong(url).orElseThrow().getShortUrl());
+    }
+}